@@ -0,0 +1,66 @@
+/*
+ *  ===============================================================================
+ *  DrawBenchmark.java : Measures drawing every shape of a scene off-screen into a
+ *  BufferedImage the size of the default window, with each renderer.
+ *  ===============================================================================
+ */
+
+package bouncing.benchmarks;
+
+import bouncing.*;
+import java.awt.*;
+import java.awt.image.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DrawBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int shapes;	// the number of shapes in the scene
+
+    @Param({"perShape", "batched", "sprites", "tiled"})
+    public String renderer;	// the renderer to draw with
+
+    private ShapeStore store;
+    private ShapeRenderer shapeRenderer;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    /** build the scene and the image to draw into
+     */
+    @Setup
+    public void setUp() {
+        store = Scenes.create(shapes, MovingShape.MovingPath.BOUNCING).getShapes();
+        for (int i = 0; i < store.size(); i += 100)	// a few handles to draw too
+            store.setSelected(i, true);
+        shapeRenderer = renderer.equals("batched") ? new BatchedRenderer()
+            : renderer.equals("sprites") ? new SpriteRenderer()
+            : renderer.equals("tiled") ? new TileRenderer() : new PerShapeRenderer();
+        image = new BufferedImage(Scenes.WIDTH, Scenes.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    /** release the graphics of the image, and the threads of the renderer
+     */
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+        if (shapeRenderer instanceof TileRenderer)
+            ((TileRenderer) shapeRenderer).close();
+    }
+
+    /** clear the image and draw every shape into it
+     */
+    @Benchmark
+    public BufferedImage draw() {
+        g.setColor(Color.white);
+        g.fillRect(0, 0, Scenes.WIDTH, Scenes.HEIGHT);
+        shapeRenderer.render(g, store, 1);
+        return image;
+    }
+}
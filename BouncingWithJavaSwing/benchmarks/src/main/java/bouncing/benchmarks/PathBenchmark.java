@@ -0,0 +1,79 @@
+/*
+ *  ===============================================================================
+ *  PathBenchmark.java : Measures moving every shape of a scene one tick,
+ *  through FallingPath.move, BouncingPath.move and the whole store, the store
+ *  moving with the scalar or the vector kernel.
+ *  ===============================================================================
+ */
+
+package bouncing.benchmarks;
+
+import bouncing.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PathBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int shapes;	// the number of shapes in the scene
+
+    @Param({"scalar", "vector"})
+    public String kernel;	// the kernel the stores move with
+
+    private ShapeStore falling, bouncing;	// one scene per path type
+    private MovingShape.MovingPath fallingPath, bouncingPath;
+
+    /** build the scenes
+     */
+    @Setup
+    public void setUp() {
+        falling = Scenes.create(shapes, MovingShape.MovingPath.FALLING).getShapes();
+        bouncing = Scenes.create(shapes, MovingShape.MovingPath.BOUNCING).getShapes();
+        fallingPath = MovingShape.MovingPath.forId(MovingShape.MovingPath.FALLING);
+        bouncingPath = MovingShape.MovingPath.forId(MovingShape.MovingPath.BOUNCING);
+        MoveKernel k = kernel.equals("vector") ? MoveKernel.vector() : MoveKernel.scalar();
+        if (k == null)
+            throw new IllegalStateException("the vector kernel needs --add-modules jdk.incubator.vector");
+        falling.setMoveKernel(k);
+        bouncing.setMoveKernel(k);
+    }
+
+    /** move every shape of the falling scene with FallingPath.move
+     */
+    @Benchmark
+    public ShapeStore fallingMove() {
+        for (int i = 0; i < falling.size(); i++)
+            fallingPath.move(falling, i);
+        return falling;
+    }
+
+    /** move every shape of the bouncing scene with BouncingPath.move
+     */
+    @Benchmark
+    public ShapeStore bouncingMove() {
+        for (int i = 0; i < bouncing.size(); i++)
+            bouncingPath.move(bouncing, i);
+        return bouncing;
+    }
+
+    /** move the bouncing scene through ShapeStore.move, as a tick does
+     */
+    @Benchmark
+    public ShapeStore storeMove() {
+        bouncing.move();
+        return bouncing;
+    }
+
+    /** move the falling scene through ShapeStore.move, as a tick does
+     */
+    @Benchmark
+    public ShapeStore fallingStoreMove() {
+        falling.move();
+        return falling;
+    }
+}
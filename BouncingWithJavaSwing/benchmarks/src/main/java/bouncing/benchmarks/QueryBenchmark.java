@@ -0,0 +1,57 @@
+/*
+ *  ===============================================================================
+ *  QueryBenchmark.java : Measures the whole-scene scans: contains against every
+ *  shape, as a click used to do, and adding up the area of every shape.
+ *  ===============================================================================
+ */
+
+package bouncing.benchmarks;
+
+import bouncing.*;
+import java.awt.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int shapes;	// the number of shapes in the scene
+
+    private ShapeStore store;
+    private MovingShape[] views;	// one reusable view per shape type
+    private final Point point = new Point(Scenes.WIDTH / 2, Scenes.HEIGHT / 2);
+
+    /** build the scene
+     */
+    @Setup
+    public void setUp() {
+        store = Scenes.create(shapes, MovingShape.MovingPath.BOUNCING).getShapes();
+        views = new MovingShape[] { new MovingRectangle(store, 0), new MovingSquare(store, 0) };
+    }
+
+    /** count the shapes containing the middle of the window
+     */
+    @Benchmark
+    public int contains() {
+        int found = 0;
+        for (int i = 0; i < store.size(); i++)
+            if (views[store.shapeType(i)].at(i).contains(point))
+                found++;
+        return found;
+    }
+
+    /** add up the area of every shape
+     */
+    @Benchmark
+    public double area() {
+        double total = 0;
+        for (int i = 0; i < store.size(); i++)
+            total += views[store.shapeType(i)].at(i).area();
+        return total;
+    }
+}
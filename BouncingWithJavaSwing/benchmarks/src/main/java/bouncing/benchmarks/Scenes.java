@@ -0,0 +1,27 @@
+/*
+ *  ===============================================================================
+ *  Scenes.java : Builds the same scenes for every benchmark.
+ *  ===============================================================================
+ */
+
+package bouncing.benchmarks;
+
+import bouncing.*;
+
+final class Scenes {
+    static final int WIDTH = 1100, HEIGHT = 800;	// the size of the default window
+
+    private Scenes() { }
+
+    /** create a world of rectangles and squares at repeatable random positions
+     * @param count      the number of shapes
+     * @param pathType   MovingShape.MovingPath.FALLING or BOUNCING
+     * @return the world
+     */
+    static World create(int count, int pathType) {
+        World world = new World(WIDTH, HEIGHT, 42);
+        world.populate(count / 2, ShapeStore.RECTANGLE, pathType, 30, 50);
+        world.populate(count - count / 2, ShapeStore.SQUARE, pathType, 30, 30);
+        return world;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  ===============================================================================
+ *  BatchedRenderer.java : Draws the shapes grouped by colour.
+ *  All fills of one palette colour are drawn in one run with a single setPaint,
+ *  then all borders per colour, then the handles of the selected shapes.
+ *  Shapes which overlap may stack differently than with PerShapeRenderer,
+ *  since every fill is drawn before any border.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+public class BatchedRenderer implements ShapeRenderer {
+    private int[] drawX = new int[0], drawY = new int[0];	// the interpolated position of each shape
+    private int[] sorted = new int[0];	// shape indices grouped by colour
+    private int[] start = new int[0];	// where each colour's group starts in sorted
+
+    /** draw every shape in the store
+     * @param g        the Graphics control
+     * @param s        the store holding the shapes
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    public void render(Graphics2D g, ShapeStore s, double alpha) {
+        int n = s.size();
+        if (drawX.length < n) {
+            drawX = new int[n];
+            drawY = new int[n];
+            sorted = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            drawX[i] = s.renderX(i, alpha);
+            drawY[i] = s.renderY(i, alpha);
+        }
+        // fills, one run per colour
+        int colors = groupByColor(s.fillColor, n, s.palette.size());
+        for (int c = 0; c < colors; c++) {
+            if (start[c] == start[c + 1])
+                continue;
+            g.setPaint(s.palette.color(c));
+            for (int k = start[c]; k < start[c + 1]; k++) {
+                int i = sorted[k];
+                g.fillRect(drawX[i], drawY[i], s.width[i], s.height(i));
+            }
+        }
+        // borders, one run per colour
+        colors = groupByColor(s.borderColor, n, s.palette.size());
+        for (int c = 0; c < colors; c++) {
+            if (start[c] == start[c + 1])
+                continue;
+            g.setPaint(s.palette.color(c));
+            for (int k = start[c]; k < start[c + 1]; k++) {
+                int i = sorted[k];
+                g.drawRect(drawX[i], drawY[i], s.width[i], s.height(i));
+            }
+        }
+        // handles of the selected shapes only
+        g.setColor(Color.black);
+        for (int i = 0; i < n; i++) {
+            if (!s.selected[i])
+                continue;
+            int x = drawX[i], y = drawY[i], width = s.width[i], height = s.height[i];
+            g.fillRect(x -2, y-2, 4, 4);
+            g.fillRect(x + width -2, y + height -2, 4, 4);
+            g.fillRect(x -2, y + height -2, 4, 4);
+            g.fillRect(x + width -2, y-2, 4, 4);
+        }
+    }
+
+    /** counting sort the shape indices by colour into sorted, keeping store order within a colour
+     * @param color     the colour index of each shape
+     * @param n         the number of shapes
+     * @param colors    the number of colours in the palette
+     * @return the number of colours
+     */
+    private int groupByColor(short[] color, int n, int colors) {
+        if (start.length < colors + 1)
+            start = new int[colors + 1];
+        Arrays.fill(start, 0, colors + 1, 0);
+        for (int i = 0; i < n; i++)
+            start[color[i] + 1]++;
+        for (int c = 0; c < colors; c++)
+            start[c + 1] += start[c];
+        int[] next = Arrays.copyOf(start, colors);
+        for (int i = 0; i < n; i++)
+            sorted[next[color[i]]++] = i;
+        return colors;
+    }
+}
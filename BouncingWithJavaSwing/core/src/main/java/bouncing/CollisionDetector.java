@@ -0,0 +1,160 @@
+/*
+ *  ===============================================================================
+ *  CollisionDetector.java : Makes bouncing shapes bounce off each other.
+ *  Broad phase: sort and sweep along the x-axis. The shapes are kept sorted by x
+ *  across ticks, and since they only move a little per tick an insertion sort puts
+ *  them back in order in close to linear time.
+ *  Narrow phase: an exact overlap test of the x/y/width/height boxes, copied in
+ *  sweep order so the inner loop reads memory sequentially.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.util.*;
+
+public class CollisionDetector {
+    private int[] order = new int[0];	// every shape index, sorted by x
+    private int count;					// the number of shapes in order
+    private int[] shape = new int[0];	// the bouncing shapes in x order, and their boxes copied
+    private int[] left = new int[0], right = new int[0], top = new int[0], bottom = new int[0];	// next to each other for the sweep
+    private int[] active = new int[0];	// positions in shape[] whose x-extent reaches the current shape
+    private int collisions;				// the number of colliding pairs found by the last resolve
+
+    /** find the overlapping pairs of bouncing shapes and bounce them off each other
+     * @param s    the store holding the shapes
+     */
+    public void resolve(ShapeStore s) {
+        sweep(s, (i, j) -> bounce(s, i, j));
+    }
+
+    /** find the overlapping pairs of bouncing shapes
+     *    The boxes are copied before the sweep, so a pair changed by the visitor
+     *    does not change which pairs are found.
+     * @param s          the store holding the shapes
+     * @param visitor    receives the indices of the two shapes of each pair
+     */
+    void sweep(ShapeStore s, Pairs visitor) {
+        sort(s);
+        int bouncing = gather(s);
+        int activeCount = 0;
+        collisions = 0;
+        for (int k = 0; k < bouncing; k++) {
+            int kept = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int m = active[a];
+                if (right[m] <= left[k])	// m ends before k starts, and so before every later shape
+                    continue;
+                active[kept++] = m;
+                if (top[k] < bottom[m] && top[m] < bottom[k] && left[m] < right[k]) {
+                    visitor.accept(shape[k], shape[m]);
+                    collisions++;
+                }
+            }
+            activeCount = kept;
+            active[activeCount++] = k;
+        }
+    }
+
+    /** return the number of colliding pairs found by the last resolve
+     * @return the number of collisions
+     */
+    public int getCollisions() { return collisions; }
+
+    /** bring the order up to date with the store and sort it by x
+     */
+    private void sort(ShapeStore s) {
+        if (s.size < count)		// shapes were removed, start again
+            count = 0;
+        if (order.length < s.size) {
+            int capacity = Math.max(s.size, order.length * 2);
+            order = Arrays.copyOf(order, capacity);
+            shape = new int[capacity];
+            left = new int[capacity];
+            right = new int[capacity];
+            top = new int[capacity];
+            bottom = new int[capacity];
+            active = new int[capacity];
+        }
+        int[] x = s.x;
+        if (s.size - count > count / 8) {	// too many new shapes for an insertion sort, sort from scratch
+            long[] keys = new long[s.size];
+            for (int i = 0; i < s.size; i++)
+                keys[i] = ((long) x[i] << 32) | i;
+            Arrays.sort(keys);
+            for (int k = 0; k < s.size; k++)
+                order[k] = (int) keys[k];
+            count = s.size;
+            return;
+        }
+        while (count < s.size) {	// new shapes go on the end and are sorted in below
+            order[count] = count;
+            count++;
+        }
+        for (int k = 1; k < count; k++) {
+            int i = order[k];
+            int key = x[i];
+            int m = k - 1;
+            while (m >= 0 && x[order[m]] > key) {
+                order[m + 1] = order[m];
+                m--;
+            }
+            order[m + 1] = i;
+        }
+    }
+
+    /** copy the boxes of the bouncing shapes, in x order, into the sweep arrays
+     * @return the number of bouncing shapes
+     */
+    private int gather(ShapeStore s) {
+        int n = 0;
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            if (s.pathType[i] != MovingShape.MovingPath.BOUNCING)
+                continue;
+            shape[n] = i;
+            left[n] = s.x[i];
+            right[n] = s.x[i] + s.width[i];
+            top[n] = s.y[i];
+            bottom[n] = s.y[i] + s.height(i);
+            n++;
+        }
+        return n;
+    }
+
+    /** push two overlapping shapes apart along the axis where they overlap least,
+     *    and turn each of them away from the other on that axis
+     */
+    private static void bounce(ShapeStore s, int i, int j) {
+        int overlapX = Math.min(s.x[i] + s.width[i], s.x[j] + s.width[j]) - Math.max(s.x[i], s.x[j]);
+        int overlapY = Math.min(s.y[i] + s.height(i), s.y[j] + s.height(j)) - Math.max(s.y[i], s.y[j]);
+        if (overlapX <= overlapY) {
+            int first = s.x[i] <= s.x[j] ? i : j, second = first == i ? j : i;
+            s.x[first] -= overlapX / 2;
+            s.x[second] += overlapX - overlapX / 2;
+            if (s.deltaX[first] > 0)
+                s.deltaX[first] = -s.deltaX[first];
+            if (s.deltaX[second] < 0)
+                s.deltaX[second] = -s.deltaX[second];
+        } else {
+            int first = s.y[i] <= s.y[j] ? i : j, second = first == i ? j : i;
+            s.y[first] -= overlapY / 2;
+            s.y[second] += overlapY - overlapY / 2;
+            if (s.deltaY[first] > 0)
+                s.deltaY[first] = -s.deltaY[first];
+            if (s.deltaY[second] < 0)
+                s.deltaY[second] = -s.deltaY[second];
+        }
+        s.rebase(i);	// knocked off their paths, which start again from here
+        s.rebase(j);
+    }
+
+    /*
+     *  ===============================================================================
+     *  Pairs : Receives the overlapping pairs a sweep finds.
+     *  ===============================================================================
+     */
+    interface Pairs {
+        void accept(int i, int j);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  ===============================================================================
+ *  ColorPalette.java : Interns the colours used by shapes.
+ *  Each distinct colour is stored once and shapes refer to it by a small index.
+ *  The colours are kept in an array which doubles when it fills, published with
+ *  the number of colours in it, so readers never lock.
+ *  A full palette refuses new colours; check hasRoom where an edit is accepted
+ *  rather than let intern throw in the middle of a tick.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+public class ColorPalette {
+    public static final int MAX_COLORS = Short.MAX_VALUE + 1;	// indices must fit in a short
+    private volatile Table table = new Table(new Color[16], 0);	// replaced on every new colour
+    private final HashMap<Color, Integer> ids = new HashMap<Color, Integer>();
+
+    /** return the index of a colour, adding it to the palette if it is new
+     * @param c    the colour
+     * @return the index of the colour
+     */
+    public synchronized int intern(Color c) {
+        Integer id = ids.get(c);
+        if (id != null)
+            return id;
+        Table t = table;
+        if (t.size == MAX_COLORS)
+            throw new IllegalStateException("Too many colours in the palette");
+        Color[] colors = t.colors;
+        if (t.size == colors.length)
+            colors = Arrays.copyOf(colors, Math.min(MAX_COLORS, colors.length * 2));
+        colors[t.size] = c;	// past the end of every published table, so no reader sees it yet
+        ids.put(c, t.size);
+        table = new Table(colors, t.size + 1);
+        return t.size;
+    }
+
+    /** return whether some colours would fit in the palette
+     * @param more      the number of other colours to make room for, which may all be new
+     * @param colors    colours which are new unless already in the palette
+     * @return true if interning them all cannot fill the palette past MAX_COLORS
+     */
+    public synchronized boolean hasRoom(int more, Color... colors) {
+        HashSet<Color> added = new HashSet<Color>();
+        for (Color c: colors)
+            if (!ids.containsKey(c))
+                added.add(c);
+        return (long) table.size + added.size() + more <= MAX_COLORS;
+    }
+
+    /** return the colour at an index
+     * @param id    the index of the colour
+     * @return the colour
+     */
+    public Color color(int id) {
+        Table t = table;
+        if (id >= t.size)
+            throw new ArrayIndexOutOfBoundsException(id);
+        return t.colors[id];
+    }
+
+    /** return the number of colours in the palette
+     * @return the number of colours
+     */
+    public int size() {
+        return table.size;
+    }
+
+    /*
+     *  ===============================================================================
+     *  Table : The colours and how many of them are in use, published together.
+     *  The final fields make the colours stored before it was made visible to
+     *  every thread which reads it.
+     *  ===============================================================================
+     */
+    private static class Table {
+        final Color[] colors;
+        final int size;
+
+        Table(Color[] colors, int size) {
+            this.colors = colors;
+            this.size = size;
+        }
+    }
+}
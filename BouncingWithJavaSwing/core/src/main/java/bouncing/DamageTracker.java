@@ -0,0 +1,264 @@
+/*
+ *  ===============================================================================
+ *  DamageTracker.java : Works out which parts of the area need to be painted again.
+ *  Each shape damages the box from where it was drawn last to where it is now, so a
+ *  frame at any point between the two ticks is covered, plus the box it damaged the
+ *  frame before, so nothing is left behind where it was. The damage is kept on a
+ *  grid of tiles and merged into a few rectangles; once too much of the area is
+ *  damaged the whole area is painted instead. A world too large for MAX_TILES tiles
+ *  gets larger tiles, so the grid never grows with the area of the world beyond that.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+public class DamageTracker {
+    public static final int TILE = 32;		// the smallest size of a grid cell in pixels
+    static final int MAX_TILES = 1 << 16;	// the most cells the grid has, whatever the size of the world
+    public static final double DEFAULT_FULL_FRACTION = 0.4;	// repaint everything past this much damage
+    public static final int MAX_REGIONS = 16;	// merge further rather than paint more rectangles
+    private static final int MAX_RUNS = 4 * MAX_REGIONS;	// coarsen the grid rather than join more rectangles
+    private static final int HANDLE = 2;	// how far handles stick out of a shape
+    private final double fullFraction;
+    private int width = -1, height = -1;	// the margin the grid was made for
+    private int tileSize = TILE;			// the size of a grid cell for the current margin
+    private int cols, rows;
+    private boolean[] dirty = new boolean[0];	// the damaged tiles, row by row
+    private int dirtyCount;
+    private boolean full = true;	// everything needs painting
+    private int[] lastLeft = new int[0], lastTop = new int[0], lastRight = new int[0], lastBottom = new int[0];	// the box each shape damaged last
+    private int lastSize;
+    private final int[] open = new int[3 * MAX_RUNS], next = new int[3 * MAX_RUNS];	// the runs being stacked by merge
+    private final int[] done = new int[4 * MAX_RUNS];	// the rectangles merged: x, y, width and height
+
+    /** constructor to create a tracker with the default threshold
+     */
+    public DamageTracker() {
+        this(DEFAULT_FULL_FRACTION);
+    }
+
+    /** constructor to create a tracker
+     * @param fullFraction    the fraction of the area past which everything is painted
+     */
+    public DamageTracker(double fullFraction) {
+        this.fullFraction = fullFraction;
+    }
+
+    /** add the damage of the shapes as they are now
+     * @param s    the store holding the shapes
+     */
+    public synchronized void track(ShapeStore s) {
+        if (s.marginWidth != width || s.marginHeight != height) {
+            width = s.marginWidth;
+            height = s.marginHeight;
+            long w = Math.max(0, width), h = Math.max(0, height);
+            tileSize = Math.max(TILE, (int) Math.ceil(Math.sqrt((double) w * h / MAX_TILES)));
+            while (((w + tileSize - 1) / tileSize) * ((h + tileSize - 1) / tileSize) > MAX_TILES)
+                tileSize++;
+            cols = (int) ((w + tileSize - 1) / tileSize);
+            rows = (int) ((h + tileSize - 1) / tileSize);
+            dirty = new boolean[cols * rows];
+            dirtyCount = 0;
+            full = true;
+        }
+        int n = s.size;
+        if (lastLeft.length < n) {
+            int capacity = Math.max(n, lastLeft.length * 2);
+            lastLeft = Arrays.copyOf(lastLeft, capacity);
+            lastTop = Arrays.copyOf(lastTop, capacity);
+            lastRight = Arrays.copyOf(lastRight, capacity);
+            lastBottom = Arrays.copyOf(lastBottom, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            int w = s.width[i], h = Math.max(s.height(i), s.height[i]);
+            int left = Math.min(s.prevX[i], s.x[i]) - HANDLE, top = Math.min(s.prevY[i], s.y[i]) - HANDLE;
+            int right = Math.max(s.prevX[i], s.x[i]) + w + HANDLE, bottom = Math.max(s.prevY[i], s.y[i]) + h + HANDLE;
+            if (!full) {
+                mark(left, top, right, bottom);
+                if (i < lastSize)
+                    mark(lastLeft[i], lastTop[i], lastRight[i], lastBottom[i]);
+            }
+            lastLeft[i] = left;
+            lastTop[i] = top;
+            lastRight[i] = right;
+            lastBottom[i] = bottom;
+        }
+        for (int i = n; i < lastSize && !full; i++)	// shapes which are gone
+            mark(lastLeft[i], lastTop[i], lastRight[i], lastBottom[i]);
+        lastSize = n;
+        if (dirtyCount > fullFraction * dirty.length)
+            full = true;
+    }
+
+    /** mark the tiles touching a box as damaged
+     */
+    private void mark(int left, int top, int right, int bottom) {
+        if (right <= 0 || bottom <= 0 || left >= width || top >= height)
+            return;
+        int c0 = Math.max(0, left) / tileSize, c1 = Math.min(cols - 1, (right - 1) / tileSize);
+        int r0 = Math.max(0, top) / tileSize, r1 = Math.min(rows - 1, (bottom - 1) / tileSize);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0, k = r * cols + c0; c <= c1; c++, k++) {
+                if (!dirty[k]) {
+                    dirty[k] = true;
+                    dirtyCount++;
+                }
+            }
+        }
+    }
+
+    /** mark everything as damaged, e.g. after something other than the shapes changed
+     */
+    public synchronized void invalidate() {
+        full = true;
+    }
+
+    /** take the damage added since the last call
+     * @param regions    cleared, then filled with the rectangles to paint unless everything is damaged
+     * @return true if the whole area should be painted instead
+     */
+    public synchronized boolean drain(List<Rectangle> regions) {
+        regions.clear();
+        boolean all = full;
+        if (!all && dirtyCount > 0) {
+            int n = merge();
+            long area = 0;
+            for (int k = 0; k < n; k++)
+                area += (long) done[4 * k + 2] * done[4 * k + 3];
+            all = n < 0 || area > fullFraction * width * height;
+            if (all)
+                n = 0;
+            for (int k = 0; k < n; k++)
+                regions.add(new Rectangle(done[4 * k], done[4 * k + 1], done[4 * k + 2], done[4 * k + 3]));
+        }
+        if (dirtyCount > 0)
+            Arrays.fill(dirty, false);
+        dirtyCount = 0;
+        full = false;
+        return all;
+    }
+
+    /** merge the damaged tiles into at most MAX_REGIONS rectangles in done
+     *    Runs of tiles in a row are stacked with the same runs below. While that gives
+     *    more than MAX_RUNS rectangles, the grid is coarsened in place to tiles twice the
+     *    size, so all the levels together cost less than twice the first one. The few
+     *    rectangles left are then joined pairwise. The damage is given up on as soon as
+     *    it covers more than the full fraction.
+     * @return the number of rectangles, or -1 if the whole area should be painted
+     */
+    private int merge() {
+        long limit = (long) (fullFraction * width * height);
+        int tile = tileSize, c = cols, r = rows, count = dirtyCount;
+        while (true) {
+            if ((long) count * tile * tile > limit)
+                return -1;
+            int n = runs(c, r, tile);
+            if (n >= 0)
+                return join(n);
+            int c2 = (c + 1) / 2, r2 = (r + 1) / 2;	// each cell covers four of the level before
+            count = 0;
+            for (int y = 0; y < r2; y++) {
+                for (int x = 0; x < c2; x++) {
+                    int k = 2 * y * c + 2 * x;
+                    boolean d = dirty[k] || (2 * x + 1 < c && dirty[k + 1])
+                        || (2 * y + 1 < r && (dirty[k + c] || (2 * x + 1 < c && dirty[k + c + 1])));
+                    dirty[y * c2 + x] = d;	// never ahead of the cells still to be read
+                    if (d)
+                        count++;
+                }
+            }
+            c = c2;
+            r = r2;
+            tile *= 2;
+        }
+    }
+
+    /** stack the runs of damaged cells of one level into rectangles in done
+     * @param c/r     the number of columns/rows of the level
+     * @param tile    the size of a cell of the level in pixels
+     * @return the number of rectangles, or -1 if there would be more than MAX_RUNS
+     */
+    private int runs(int c, int r, int tile) {
+        int[] open = this.open, next = this.next;	// first column, last column and first row of each run going on down
+        int opened = 0, finished = 0;
+        for (int y = 0; y <= r; y++) {
+            int nexts = 0, o = 0;
+            for (int x = 0; y < r && x < c; x++) {
+                if (!dirty[y * c + x])
+                    continue;
+                int x0 = x;
+                while (x + 1 < c && dirty[y * c + x + 1])
+                    x++;
+                int top = y;
+                for (; o < opened && open[3 * o] <= x0; o++) {	// both rows hold their runs left to right
+                    if (open[3 * o] == x0 && open[3 * o + 1] == x)	// the same run continues down
+                        top = open[3 * o + 2];
+                    else
+                        finish(finished++, open, o, y, tile);
+                }
+                if (finished + nexts >= MAX_RUNS)	// every run going on ends up a rectangle of its own
+                    return -1;
+                next[3 * nexts] = x0;
+                next[3 * nexts + 1] = x;
+                next[3 * nexts++ + 2] = top;
+            }
+            for (; o < opened; o++)	// runs which did not continue are finished
+                finish(finished++, open, o, y, tile);
+            if (finished > MAX_RUNS)
+                return -1;
+            int[] t = open;
+            open = next;
+            next = t;
+            opened = nexts;
+        }
+        return finished;
+    }
+
+    /** store a run which went down to the row above as a rectangle in done
+     */
+    private void finish(int k, int[] open, int o, int y, int tile) {
+        if (k >= MAX_RUNS)
+            return;	// too many already, which the caller gives up on
+        done[4 * k] = open[3 * o] * tile;
+        done[4 * k + 1] = open[3 * o + 2] * tile;
+        done[4 * k + 2] = (open[3 * o + 1] - open[3 * o] + 1) * tile;
+        done[4 * k + 3] = (y - open[3 * o + 2]) * tile;
+    }
+
+    /** join the two rectangles in done which waste the least area together, until MAX_REGIONS are left
+     * @param n    the number of rectangles, at most MAX_RUNS
+     * @return the number of rectangles left
+     */
+    private int join(int n) {
+        for (; n > MAX_REGIONS; n--) {
+            int bestA = 0, bestB = 1;
+            long best = Long.MAX_VALUE;
+            for (int a = 0; a < n; a++) {
+                int ax = done[4 * a], ay = done[4 * a + 1], ar = ax + done[4 * a + 2], ab = ay + done[4 * a + 3];
+                long area = (long) done[4 * a + 2] * done[4 * a + 3];
+                for (int b = a + 1; b < n; b++) {
+                    int bx = done[4 * b], by = done[4 * b + 1], br = bx + done[4 * b + 2], bb = by + done[4 * b + 3];
+                    long waste = (long) (Math.max(ar, br) - Math.min(ax, bx)) * (Math.max(ab, bb) - Math.min(ay, by))
+                        - area - (long) done[4 * b + 2] * done[4 * b + 3];
+                    if (waste < best) {
+                        best = waste;
+                        bestA = a;
+                        bestB = b;
+                    }
+                }
+            }
+            int a = 4 * bestA, b = 4 * bestB, last = 4 * (n - 1);
+            int x = Math.min(done[a], done[b]), y = Math.min(done[a + 1], done[b + 1]);
+            done[a + 2] = Math.max(done[a] + done[a + 2], done[b] + done[b + 2]) - x;
+            done[a + 3] = Math.max(done[a + 1] + done[a + 3], done[b + 1] + done[b + 3]) - y;
+            done[a] = x;
+            done[a + 1] = y;
+            System.arraycopy(done, last, done, b, 4);	// the last rectangle takes the place of the joined one
+        }
+        return n;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  ===============================================================================
+ *  FastTrig.java : The cosine and rounding used by the falling path.
+ *  Built only from additions, multiplications and comparisons in a fixed order,
+ *  so VectorMoveKernel can repeat the same steps lane by lane and get the very
+ *  same bits as the scalar path. The cosine is the fdlibm polynomial on a
+ *  quarter turn, within a few ulp of Math.cos for phases up to about 10^6.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+final class FastTrig {
+    static final double MAGIC = 0x1.8p52;	// adding and taking away this rounds to a whole number
+    static final double TWO_OVER_PI = 0x1.45f306dc9c883p-1;
+    static final double PIO2_HI = 1.57079632673412561417e+00;	// the first 33 bits of pi / 2
+    static final double PIO2_LO = 6.07710050650619224932e-11;	// pi / 2 - PIO2_HI
+    static final double S1 = -1.66666666666666324348e-01, S2 = 8.33333333332248946124e-03,
+        S3 = -1.98412698298579493134e-04, S4 = 2.75573137070700676789e-06,
+        S5 = -2.50507602534068634195e-08, S6 = 1.58969099521155010221e-10;
+    static final double C1 = 4.16666666666666019037e-02, C2 = -1.38888888888741095749e-03,
+        C3 = 2.48015872894767294178e-05, C4 = -2.75573143513906633035e-07,
+        C5 = 2.08757232129817482790e-09, C6 = -1.13596475577881948265e-11;
+
+    private FastTrig() { }
+
+    /** return the cosine of an angle
+     * @param a    the angle in radians, below 2^51 in size
+     * @return the cosine
+     */
+    static double cos(double a) {
+        double k = (a * TWO_OVER_PI + MAGIC) - MAGIC;	// the nearest quarter turn
+        double r = a - k * PIO2_HI - k * PIO2_LO;		// what is left, within pi / 4
+        long q = (long) k;
+        double z = r * r;
+        double sin = r + r * z * (S1 + z * (S2 + z * (S3 + z * (S4 + z * (S5 + z * S6)))));
+        double cos = 1 - 0.5 * z + z * z * (C1 + z * (C2 + z * (C3 + z * (C4 + z * (C5 + z * C6)))));
+        double v = (q & 1) == 0 ? cos : sin;
+        return ((q + 1) & 2) == 0 ? v : -v;	// quarter turns 1 and 2 are negative
+    }
+
+    /** return a number rounded to the nearest whole number, halves up, as Math.round does
+     * @param v    the number, below 2^31 in size
+     * @return the whole number
+     */
+    static int round(double v) {
+        double t = v + 0.5;
+        double r = (t + MAGIC) - MAGIC;	// the nearest whole number, which floor(t) is at most 1 below
+        return (int) (r > t ? r - 1 : r);
+    }
+}
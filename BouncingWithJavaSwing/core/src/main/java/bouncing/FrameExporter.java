@@ -0,0 +1,142 @@
+/*
+ *  ===============================================================================
+ *  FrameExporter.java : Runs a world for a number of ticks and writes every
+ *  frame to a numbered PNG file, without a display.
+ *  Frames are drawn on the calling thread and encoded on a bounded pool of
+ *  workers. The images come from a fixed pool, so drawing waits for a free
+ *  image when the encoders fall behind and memory stays flat.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import javax.imageio.*;
+
+public class FrameExporter {
+    /** the name of the frame files, numbered from 0 */
+    public static final String FILE_FORMAT = "frame-%06d.png";
+
+    private final Path directory;
+    private final int threads;
+    private final int buffers;
+    private ShapeRenderer renderer = new PerShapeRenderer();
+    private Color background = Color.white;
+    private long renderNanos, waitNanos;
+
+    /** constructor to create an exporter
+     * @param directory    the directory to write the frames to, created if missing
+     * @param threads      the number of encoding threads
+     * @param buffers      the number of images in the pool, at least threads + 1 to keep drawing busy
+     */
+    public FrameExporter(Path directory, int threads, int buffers) {
+        if (threads < 1 || buffers < 1)
+            throw new IllegalArgumentException("threads and buffers must be at least 1");
+        this.directory = directory;
+        this.threads = threads;
+        this.buffers = buffers;
+    }
+
+    /** set the way the frames are drawn
+     * @param renderer    the renderer
+     */
+    public void setRenderer(ShapeRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /** set the colour each frame is cleared to
+     * @param background    the colour
+     */
+    public void setBackground(Color background) {
+        this.background = background;
+    }
+
+    /** return the time spent drawing in the last export, in ns
+     * @return the time
+     */
+    public long getRenderNanos() { return renderNanos; }
+
+    /** return the time drawing waited for a free image in the last export, in ns
+     * @return the time
+     */
+    public long getWaitNanos() { return waitNanos; }
+
+    /** tick the world and write a frame after each tick
+     * @param world     the world to run
+     * @param frames    the number of frames to write
+     * @throws IOException if a frame cannot be written; the frames already queued are finished first
+     */
+    public void export(World world, int frames) throws IOException {
+        Files.createDirectories(directory);
+        int width = world.getWidth(), height = world.getHeight();
+        BlockingQueue<BufferedImage> free = new ArrayBlockingQueue<>(buffers);
+        for (int b = 0; b < buffers; b++)
+            free.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        ExecutorService encoders = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "frame-encoder");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Void> done = new ExecutorCompletionService<>(encoders);
+        int pending = 0;
+        IOException failure = null;
+        renderNanos = waitNanos = 0;
+        try {
+            for (int f = 0; f < frames && failure == null; f++) {
+                long begin = System.nanoTime();
+                BufferedImage image = free.take();	// back-pressure: waits while every image is being encoded
+                long drawn = System.nanoTime();
+                waitNanos += drawn - begin;
+                world.tick();
+                Graphics2D g = image.createGraphics();
+                g.setColor(background);
+                g.fillRect(0, 0, width, height);
+                renderer.render(g, world.getShapes(), 1);
+                g.dispose();
+                renderNanos += System.nanoTime() - drawn;
+
+                final Path file = directory.resolve(String.format(FILE_FORMAT, f));
+                done.submit(() -> {
+                    try {
+                        ImageIO.write(image, "png", file.toFile());
+                    } finally {
+                        free.add(image);
+                    }
+                    return null;
+                });
+                pending++;
+                // collect the finished encodes so an error stops the export early
+                for (Future<Void> result; (result = done.poll()) != null; pending--)
+                    failure = failureOf(result, failure);
+            }
+            for (; pending > 0; pending--)
+                failure = failureOf(done.take(), failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("export interrupted");
+        } finally {
+            encoders.shutdownNow();
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /** return the first failure of an export
+     * @param result     a finished encode
+     * @param failure    the failure so far, or null
+     * @return the failure so far, or that of the encode if there was none
+     */
+    private static IOException failureOf(Future<Void> result, IOException failure) throws InterruptedException {
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            if (failure == null)
+                failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  ===============================================================================
+ *  FrameTimeHistogram.java : A histogram of durations over a rolling window.
+ *  Durations are counted in fixed 0.1 ms buckets up to 100 ms, plus one bucket for
+ *  anything longer. The last samples are kept in a ring so the oldest one can be
+ *  taken out of its bucket when a new one arrives; recording is O(1).
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.io.*;
+import java.nio.file.*;
+
+public class FrameTimeHistogram {
+    public static final long BUCKET_NANOS = 100000;	// the width of a bucket, 0.1 ms
+    public static final int BUCKETS = 1000;			// buckets up to 100 ms, then the overflow bucket
+    private final long[] window;	// the last samples, oldest overwritten first
+    private final int[] counts = new int[BUCKETS + 1];
+    private int next;				// where the next sample goes in the window
+    private int size;				// the number of samples in the window
+    private long sum;				// the total of the samples in the window
+
+    /** constructor to create an empty histogram
+     * @param windowSize    the number of most recent samples to keep
+     */
+    public FrameTimeHistogram(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("windowSize must be positive");
+        window = new long[windowSize];
+    }
+
+    private static int bucket(long nanos) {
+        return (int) Math.min(BUCKETS, Math.max(0, nanos) / BUCKET_NANOS);
+    }
+
+    /** add a sample, dropping the oldest one once the window is full
+     * @param nanos    the duration in ns
+     */
+    public synchronized void record(long nanos) {
+        if (size == window.length) {
+            counts[bucket(window[next])]--;
+            sum -= window[next];
+        } else {
+            size++;
+        }
+        window[next] = nanos;
+        counts[bucket(nanos)]++;
+        sum += nanos;
+        next = (next + 1) % window.length;
+    }
+
+    /** return the number of samples in the window
+     * @return the number of samples
+     */
+    public synchronized int size() { return size; }
+
+    /** return the mean of the samples in the window
+     * @return the mean in ns, or 0 if there are none
+     */
+    public synchronized double mean() {
+        return size == 0 ? 0 : (double) sum / size;
+    }
+
+    /** return the upper edge of the bucket holding a percentile of the window
+     * @param p    the percentile, 0 to 100
+     * @return the duration in ns, to a bucket's precision; 0 if there are no samples
+     */
+    public synchronized long percentile(double p) {
+        if (size == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * size));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank)
+                return (b + 1) * BUCKET_NANOS;
+        }
+        return max();	// in the overflow bucket
+    }
+
+    /** return the longest sample in the window
+     * @return the duration in ns, or 0 if there are no samples
+     */
+    public synchronized long max() {
+        long max = 0;
+        for (int k = 0; k < size; k++)
+            max = Math.max(max, window[k]);
+        return max;
+    }
+
+    /** write the histogram to a file as comma separated values
+     *    A summary comes first as comments, then one line per non-empty bucket.
+     * @param file    the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void dump(Path file) throws IOException {
+        int[] snapshot;
+        int n;
+        synchronized (this) {
+            snapshot = counts.clone();
+            n = size;
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.printf("# samples=%d mean_ms=%.3f p50_ms=%.1f p99_ms=%.1f max_ms=%.3f%n",
+                n, mean() / 1e6, percentile(50) / 1e6, percentile(99) / 1e6, max() / 1e6);
+            out.println("bucket_upper_ms,count");
+            for (int b = 0; b <= BUCKETS; b++) {
+                if (snapshot[b] == 0)
+                    continue;
+                out.println((b == BUCKETS ? "inf" : String.format("%.1f", (b + 1) * BUCKET_NANOS / 1e6)) + "," + snapshot[b]);
+            }
+        }
+    }
+}
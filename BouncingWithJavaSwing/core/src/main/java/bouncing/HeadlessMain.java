@@ -0,0 +1,135 @@
+/*
+ *  ===============================================================================
+ *  HeadlessMain.java : Runs the simulation without a display, as fast as it can,
+ *  and reports how many ticks and shape moves it managed per second.
+ *  For load tests on machines where java.awt.headless=true.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class HeadlessMain {
+
+    /** main method for HeadlessMain
+     *    usage: HeadlessMain [-width w] [-height h] [-shapes n] [-shape rectangle|square|mixed]
+     *           [-path falling|bouncing|mixed] [-distribution uniform|gaussian|grid] [-colors n] [-ticks t] [-warmup t] [-parallel threads] [-collisions] [-seed s]
+     *           [-record file] [-load scene] [-save scene] [-export dir] [-encoders threads]
+     *    run java with --add-modules jdk.incubator.vector to move the shapes with the vector kernel
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int width = 1100, height = 800, count = 100000, ticks = 1000, warmup = 100, parallelism = 0;
+        int type = ShapeStore.RECTANGLE, path = MovingShape.MovingPath.BOUNCING, distribution = Spawner.UNIFORM, colors = 0;
+        boolean collide = false;
+        long seed = 0;
+        String record = null, load = null, save = null, export = null;
+        int encoders = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int a = 0; a < args.length; a++) {
+                switch (args[a]) {
+                    case "-width": width = Integer.parseInt(args[++a]); break;
+                    case "-height": height = Integer.parseInt(args[++a]); break;
+                    case "-shapes": count = Integer.parseInt(args[++a]); break;
+                    case "-shape": type = parseShape(args[++a]); break;
+                    case "-path": path = parsePath(args[++a]); break;
+                    case "-distribution": distribution = Spawner.distributionFor(args[++a]); break;
+                    case "-colors": colors = Integer.parseInt(args[++a]); break;
+                    case "-ticks": ticks = Integer.parseInt(args[++a]); break;
+                    case "-warmup": warmup = Integer.parseInt(args[++a]); break;
+                    case "-parallel": parallelism = Integer.parseInt(args[++a]); break;
+                    case "-collisions": collide = true; break;
+                    case "-seed": seed = Long.parseLong(args[++a]); break;
+                    case "-record": record = args[++a]; break;
+                    case "-load": load = args[++a]; break;
+                    case "-save": save = args[++a]; break;
+                    case "-export": export = args[++a]; break;
+                    case "-encoders": encoders = Integer.parseInt(args[++a]); break;
+                    default: throw new IllegalArgumentException("unknown option " + args[a]);
+                }
+            }
+        } catch (RuntimeException e) {	// a bad number, a missing value or an unknown option
+            System.err.println(e.getMessage());
+            System.err.println("usage: HeadlessMain [-width w] [-height h] [-shapes n] [-shape rectangle|square|mixed]"
+                + " [-path falling|bouncing|mixed] [-distribution uniform|gaussian|grid] [-colors n] [-ticks t] [-warmup t] [-parallel threads] [-collisions] [-seed s]"
+                + " [-record file] [-load scene] [-save scene] [-export dir] [-encoders threads]");
+            System.exit(1);
+        }
+
+        World world = new World(width, height, seed);
+        if (load != null) {	// the scene replaces the generated shapes and sets the size of the world
+            long begin = System.nanoTime();
+            world.loadScene(Paths.get(load));
+            count = world.getShapes().size();
+            System.out.printf("loaded %d shapes from %s in %.3f s%n", count, load, (System.nanoTime() - begin) / 1e9);
+        } else {
+            Spawner spawner = new Spawner();
+            spawner.setCount(count);
+            spawner.setShapeType(type);
+            spawner.setPathType(path);
+            spawner.setDistribution(distribution);
+            if (colors > 0)
+                spawner.setColors(new Color[] { Color.black }, Spawner.randomColors(colors, world.split()));
+            world.spawn(spawner);
+        }
+        ParallelMover mover = parallelism > 0 ? new ParallelMover(parallelism, ParallelMover.DEFAULT_THRESHOLD) : null;
+        if (mover != null)
+            world.setParallelMover(mover);
+        if (collide)
+            world.setCollisions(new CollisionDetector());
+        RunRecorder recorder = record == null ? null : new RunRecorder(Paths.get(record));
+
+        for (int t = 0; t < warmup; t++)
+            world.tick();
+        world.setRecorder(recorder);	// the measured ticks only, and the time to write them
+        long start = System.nanoTime();
+        if (export != null) {	// draw and write a frame after every tick
+            FrameExporter exporter = new FrameExporter(Paths.get(export), encoders, encoders * 2);
+            exporter.export(world, ticks);
+            System.out.printf("exported %d frames to %s: %.3f s drawing, %.3f s waiting for the encoders%n",
+                ticks, export, exporter.getRenderNanos() / 1e9, exporter.getWaitNanos() / 1e9);
+        } else {
+            for (int t = 0; t < ticks; t++)
+                world.tick();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (mover != null)
+            mover.close();
+        if (recorder != null) {
+            world.setRecorder(null);
+            recorder.close();
+            System.out.printf("recorded %d frames to %s (%d bytes)%n", recorder.getFrames(), record, Files.size(Paths.get(record)));
+        }
+        if (save != null) {
+            long begin = System.nanoTime();
+            world.saveScene(Paths.get(save));
+            System.out.printf("saved %d shapes to %s in %.3f s%n", count, save, (System.nanoTime() - begin) / 1e9);
+        }
+
+        System.out.printf("%d shapes, %d ticks in %.3f s, moved by the %s kernel%n", count, ticks, seconds, MoveKernel.best());
+        System.out.printf("%.1f ticks/sec%n", ticks / seconds);
+        System.out.printf("%.4g shapes*ticks/sec%n", (double) count * ticks / seconds);
+    }
+
+    private static int parseShape(String name) {
+        switch (name) {
+            case "rectangle": return ShapeStore.RECTANGLE;
+            case "square": return ShapeStore.SQUARE;
+            case "mixed": return Spawner.MIXED;
+            default: throw new IllegalArgumentException("unknown shape " + name);
+        }
+    }
+
+    private static int parsePath(String name) {
+        switch (name) {
+            case "falling": return MovingShape.MovingPath.FALLING;
+            case "bouncing": return MovingShape.MovingPath.BOUNCING;
+            case "mixed": return Spawner.MIXED;
+            default: throw new IllegalArgumentException("unknown path " + name);
+        }
+    }
+}
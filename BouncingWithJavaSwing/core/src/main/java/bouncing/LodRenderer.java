@@ -0,0 +1,179 @@
+/*
+ *  ===============================================================================
+ *  LodRenderer.java : Draws only what can be seen, through another renderer.
+ *  Shapes wholly outside the area being painted are culled, and so are shapes
+ *  smaller than a minimum size. The area is cut into square cells; where more
+ *  shapes than a limit pile up in one cell, the cell is drawn as a single block
+ *  coloured by how many shapes it holds instead of shape by shape.
+ *  The shapes left are copied into a scratch store for the other renderer, so
+ *  the cost of drawing follows the painted area rather than the number of shapes.
+ *  The minimum size and the cells are measured in device pixels, through the scale
+ *  of the Graphics, so zooming out thins out the shapes as they get smaller on screen.
+ *  Selected shapes are always drawn, on top of the blocks, so their handles stay visible.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.*;
+
+public class LodRenderer implements ShapeRenderer {
+    public static final int DEFAULT_CELL_SIZE = 16;		// the width and height of a density cell in device pixels
+    private static final int MAX_CELLS = 1 << 20;		// larger cells rather than more, whatever the area
+    public static final int DEFAULT_DENSITY_LIMIT = 32;	// shapes in a cell before it becomes a block
+    private static final int HANDLE = 2;				// how far the handles reach out of a shape
+    private static final Color[] HEAT = new Color[64];	// the block colours, from crowded to packed solid
+    static {
+        for (int h = 0; h < HEAT.length; h++)
+            HEAT[h] = Color.getHSBColor(0.66f * (1 - h / (float) (HEAT.length - 1)), 0.8f, 0.95f);
+    }
+
+    private volatile ShapeRenderer delegate;
+    private int cellSize = DEFAULT_CELL_SIZE;
+    private int densityLimit = DEFAULT_DENSITY_LIMIT;
+    private int minSize = 0;
+    private ShapeStore visible;				// the shapes left to draw in the last frame
+    private int[] ids = new int[0];			// the indices of those shapes in the store drawn
+    private int[] cellOf = new int[0];		// the cell of each shape, or -1 if it was culled
+    private int[] counts = new int[0];		// the number of shapes in each cell
+    private int drawn, culled, blocks;		// figures about the last frame
+
+    /** constructor to create a renderer
+     * @param delegate    the renderer to draw the shapes which are left with
+     */
+    public LodRenderer(ShapeRenderer delegate) {
+        this.delegate = delegate;
+    }
+
+    /** set the renderer to draw the shapes which are left with
+     * @param delegate    the renderer
+     */
+    public void setDelegate(ShapeRenderer delegate) {
+        this.delegate = delegate;
+    }
+
+    /** return the renderer drawing the shapes which are left
+     * @return the renderer
+     */
+    public ShapeRenderer getDelegate() { return delegate; }
+
+    /** set the size below which shapes are not drawn
+     * @param minSize    the width or height in device pixels a shape must reach to be drawn; 0 draws all
+     */
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    /** set the size of the density cells
+     * @param cellSize    the width and height of a cell in device pixels
+     */
+    public void setCellSize(int cellSize) {
+        if (cellSize < 1)
+            throw new IllegalArgumentException("cellSize must be positive");
+        this.cellSize = cellSize;
+    }
+
+    /** set how many shapes may pile up in a cell before it is drawn as a block
+     * @param densityLimit    the number of shapes; Integer.MAX_VALUE never draws blocks
+     */
+    public void setDensityLimit(int densityLimit) {
+        if (densityLimit < 1)
+            throw new IllegalArgumentException("densityLimit must be positive");
+        this.densityLimit = densityLimit;
+    }
+
+    /** return the number of shapes drawn in the last frame
+     * @return the number of shapes
+     */
+    public int getDrawn() { return drawn; }
+
+    /** return the number of shapes culled in the last frame, as out of view or too small
+     * @return the number of shapes
+     */
+    public int getCulled() { return culled; }
+
+    /** return the number of cells drawn as blocks in the last frame
+     * @return the number of cells
+     */
+    public int getBlocks() { return blocks; }
+
+    /** draw the shapes which can be seen in the clip of g, or in the margin if g is not clipped
+     * @param g        the Graphics control
+     * @param s        the store holding the shapes
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    public void render(Graphics2D g, ShapeStore s, double alpha) {
+        Rectangle view = g.getClipBounds();
+        if (view == null)
+            view = new Rectangle(0, 0, s.marginWidth, s.marginHeight);
+        int n = s.size();
+        AffineTransform t = g.getTransform();
+        double scale = Math.max(Math.abs(t.getScaleX()), Math.abs(t.getScaleY()));	// device pixels per unit of the store
+        if (!(scale > 0))
+            scale = 1;
+        int cell = Math.max(1, (int) Math.round(cellSize / scale));
+        if (((long) view.width / cell + 1) * ((long) view.height / cell + 1) > MAX_CELLS)
+            cell = (int) Math.ceil(Math.sqrt((double) view.width * view.height / MAX_CELLS)) + 1;
+        int cols = Math.max(1, (int) (((long) view.width + cell - 1) / cell)), rows = Math.max(1, (int) (((long) view.height + cell - 1) / cell));
+        if (cellOf.length < n)
+            cellOf = new int[n];
+        if (counts.length < cols * rows)
+            counts = new int[cols * rows];
+        Arrays.fill(counts, 0, cols * rows, 0);
+
+        // cull, and count the shapes left in the cell holding their centre
+        int right = view.x + view.width, bottom = view.y + view.height;
+        culled = 0;
+        for (int i = 0; i < n; i++) {
+            int x = s.renderX(i, alpha), y = s.renderY(i, alpha), w = s.width[i], h = s.height(i);
+            boolean small = w * scale < minSize || h * scale < minSize;
+            // everything drawn for a shape: border to x + width, handles a little past the corners of the raw height
+            int x1 = x + Math.max(w + HANDLE - 1, 0), y1 = y + Math.max(Math.max(h, s.height[i] + HANDLE - 1), 0);
+            if ((small && !s.selected[i]) || x1 < view.x || x - HANDLE >= right || y1 < view.y || y - HANDLE >= bottom) {
+                cellOf[i] = -1;
+                culled++;
+                continue;
+            }
+            int col = Math.min(cols - 1, Math.max(0, (x + w / 2 - view.x) / cell));
+            int row = Math.min(rows - 1, Math.max(0, (y + h / 2 - view.y) / cell));
+            counts[cellOf[i] = row * cols + col]++;
+        }
+
+        // draw the shapes in cells which are not too crowded, then the crowded cells over them
+        if (ids.length < n)
+            ids = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (cellOf[i] >= 0 && counts[cellOf[i]] <= densityLimit)
+                ids[count++] = i;
+        }
+        if (visible == null || visible.palette != s.palette)
+            visible = new ShapeStore(count, s.palette);
+        s.copyTo(visible, ids, count);
+        delegate.render(g, visible, alpha);
+        drawn = count;
+
+        blocks = 0;
+        double top = Math.log(cell * scale * cell * scale / densityLimit);	// one shape per device pixel is the hottest
+        for (int c = 0; c < cols * rows; c++) {
+            if (counts[c] <= densityLimit)
+                continue;
+            double heat = top <= 0 ? 1 : Math.min(1, Math.log(counts[c] / (double) densityLimit) / top);
+            g.setColor(HEAT[(int) Math.round(heat * (HEAT.length - 1))]);
+            g.fillRect(view.x + (c % cols) * cell, view.y + (c / cols) * cell, cell, cell);
+            blocks++;
+        }
+
+        // and the selected shapes of the crowded cells on top
+        MovingShape[] views = { new MovingRectangle(s, 0), new MovingSquare(s, 0) };
+        for (int k = 0; k < s.selectedCount(); k++) {
+            int i = s.selectedIds[k];
+            if (cellOf[i] >= 0 && counts[cellOf[i]] > densityLimit) {
+                views[s.shapeType(i)].at(i).draw(g, alpha);
+                drawn++;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *  ===============================================================================
+ *  MoveKernel.java : Moves a range of shapes of a store by their paths.
+ *  The scalar kernel moves shape by shape through MovingPath.move. The vector
+ *  kernel, VectorMoveKernel, moves several shapes per instruction and is only
+ *  loaded when the JVM runs with --add-modules jdk.incubator.vector; it gives
+ *  the same results bit for bit. Set -Dbouncing.vector=false to keep it off.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+public abstract class MoveKernel {
+    private static final MoveKernel SCALAR = new MoveKernel() {
+        void move(ShapeStore s, int from, int to) {
+            for (int i = from; i < to; i++)
+                s.moveOne(i);
+        }
+
+        public String toString() { return "scalar"; }
+    };
+    private static final MoveKernel VECTOR = loadVector();
+
+    MoveKernel() { }
+
+    /** return the kernel which moves shape by shape
+     * @return the kernel
+     */
+    public static MoveKernel scalar() { return SCALAR; }
+
+    /** return the kernel which moves several shapes at once
+     * @return the kernel, or null if the vector module is not there or turned off
+     */
+    public static MoveKernel vector() { return VECTOR; }
+
+    /** return the fastest kernel available
+     * @return the kernel
+     */
+    public static MoveKernel best() { return VECTOR != null ? VECTOR : SCALAR; }
+
+    /** move the shapes in a range of indices by their paths, keeping their previous positions
+     * @param s       the store holding the shapes
+     * @param from    the first index, inclusive
+     * @param to      the last index, exclusive
+     */
+    abstract void move(ShapeStore s, int from, int to);
+
+    private static MoveKernel loadVector() {
+        if (!Boolean.parseBoolean(System.getProperty("bouncing.vector", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return null;
+        try {
+            return (MoveKernel) Class.forName("bouncing.VectorMoveKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {	// built without the module, or a JDK without it
+            return null;
+        }
+    }
+}
@@ -4,6 +4,9 @@
  *  MovingRectangle.java : The class of all rectangles.
  *  ===============================================================================
  */
+
+package bouncing;
+
 import java.awt.*;
 
 public class MovingRectangle extends MovingShape {
@@ -12,29 +15,37 @@ public class MovingRectangle extends MovingShape {
 	/** constructors for a rectangle
 	 */
 	public MovingRectangle() {
-		super();
+		super(ShapeStore.RECTANGLE);
 	}
 
 	public MovingRectangle(int x, int y, int mw, int mh, Color border, Color fill, int pathType, int w, int h) {
-		super(x, y, mw,  mh,  border,  fill,  pathType, w, h);
+		super(ShapeStore.RECTANGLE, x, y, mw,  mh,  border,  fill,  pathType, w, h);
+	}
+
+	/** constructor for a view of a shape in a store
+	 */
+	public MovingRectangle(ShapeStore store, int index) {
+		super(store, index);
 	}
 
-	/** draws the rectangle
+	/** draws the rectangle with its top left corner at (x,y)
 	 */
-	public void draw(Graphics g) {
+	public void draw(Graphics g, int x, int y) {
 		Graphics2D g2d = (Graphics2D) g;
-		g2d.setPaint(fillColor);
+		int width = getWidth(), height = getHeight();
+		g2d.setPaint(getFillColor());
 		g2d.fillRect(x, y, width, height);		
-		g2d.setPaint(borderColor);
+		g2d.setPaint(getBorderColor());
 		g2d.drawRect(x, y, width, height);
-		drawHandles(g);
+		drawHandles(g, x, y);
 	}
 
 	/** Checks if in shape
 	 */
 	public boolean contains(Point point) {
+		int x = getX(), y = getY(), width = getWidth(), height = getHeight();
 		return (x <= point.x && point.x <= (x + width + 1)	&& y <= point.y && point.y <= (y + height + 1));
 	}
 	
-	public double area(){return width*height;}
-}
\ No newline at end of file
+	public double area(){return getWidth()*getHeight();}
+}
\ No newline at end of file
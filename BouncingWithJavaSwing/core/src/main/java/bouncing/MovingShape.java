@@ -0,0 +1,431 @@
+/*
+ *  ===============================================================================
+ *  Brian Lin
+ *  MovingShape.java : \
+ *  The superclass of all shapes.
+ *  A shape has a top-left corner (x,y).
+ *  A shape defines various properties, including selected, fill colour, border color, width and height.
+ *  The properties live in a ShapeStore; a MovingShape is a view onto one index of it.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+public abstract class MovingShape {
+
+    protected final ShapeStore store;	// the store holding the state of the shape
+    protected int index;				// the index of the shape in the store
+
+
+    /** constructor to create a shape with default values
+     * @param type	ShapeStore.RECTANGLE or ShapeStore.SQUARE
+     */
+    protected MovingShape(int type) {
+        this(type, 10, 20, 800, 500, Color.black, Color.blue, 0, 30, 50); // the default properties
+    }
+
+    /** constructor to create a shape in a store of its own
+     * @param type	ShapeStore.RECTANGLE or ShapeStore.SQUARE
+     * @param x		the x-coordinate of the new shape
+     * @param y		the y-coordinate of the new shape
+     * @param mw	the margin width of the animation panel
+     * @param mh	the margin height of the animation panel
+     * @param c		the colour of the new shape
+     * @param typeOfPath	the path of the new shape
+     * @param w 	the width of shape
+     * @param h	 	the height of shape
+     */
+    protected MovingShape(int type, int x, int y, int mw, int mh, Color border, Color fill, int pathType, int w, int h) {
+        store = new ShapeStore(1);
+        store.setMarginSize(mw, mh);
+        index = store.add(type, x, y, border, fill, pathType, w, h);
+    }
+
+    /** constructor to create a view of a shape already in a store
+     * @param store	the store holding the shape
+     * @param index	the index of the shape in the store
+     */
+    protected MovingShape(ShapeStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /** point this view at another shape of the same store and type
+     *    Lets a loop over the store reuse one view instead of allocating one per shape.
+     * @param i     the index of the shape
+     * @return this view
+     */
+    public MovingShape at(int i) {
+        index = i;
+        return this;
+    }
+
+    /** Return the index of the shape in its store.
+     * @return the index
+     */
+    public int getIndex() { return index; }
+
+	/** Set the height/width of the shape.
+	 * @param h/w the height/width value
+	 */
+	public void setHeight(int h) { store.setHeight(index, h); }
+
+	public void setWidth(int w) { store.setWidth(index, w); }
+
+	/** Get the height/width of the shape.
+	 * @return the height/width value
+	 */
+
+	public int getHeight() { return store.height[index]; }
+
+	public int getWidth() { return store.width[index]; }
+
+    /** Return the x-coordinate of the shape.
+     * @return the x coordinate
+     */
+    public int getX() { return store.x[index]; }
+
+    /** Set the x-coordinate of the shape.
+     * @param x     the x value
+     */
+    public void setX(int x) { store.x[index] = store.prevX[index] = x; store.rebase(index); }
+
+    /** Return the y-coordinate of the shape.
+     * @return the y coordinate
+     */
+    public int getY() { return store.y[index];}
+
+    /** Set the y-coordinate of the shape.
+     * @param y     the y value
+     */
+    public void setY(int y) { store.y[index] = store.prevY[index] = y; store.rebase(index); }
+
+    /** Return the selected property of the shape.
+     * @return the selected property
+     */
+    public boolean isSelected() { return store.selected[index]; }
+
+    /** Set the selected property of the shape.
+     *    When the shape is selected, its handles are shown.
+     * @param s     the selected value
+     */
+    public void setSelected(boolean s) { store.setSelected(index, s); }
+
+    /** Return the border colour of the shape.
+     * @return the border colour
+     */
+    public Color getBorderColor() { return store.palette.color(store.borderColor[index]);}
+
+    /** Set the border colour of the shape.
+     * @param c     the border colour
+     */
+    public void setBorderColor(Color c) { store.borderColor[index] = (short) store.palette.intern(c); }
+
+    /** Return the fill colour of the shape.
+     * @return the fill colour
+     */
+    public Color getFillColor() { return store.palette.color(store.fillColor[index]);}
+
+    /** Set the fill colour of the shape.
+     * @param fc     the fill colour
+     */
+    public void setFillColor(Color fc) { store.fillColor[index] = (short) store.palette.intern(fc); }
+
+    /**
+     * Return a string representation of the shape, containing
+     * the String representation of each element.
+     */
+    public String toString() {
+        return "[" + this.getClass().getName() + "," + getX() + "," + getY() + "]";
+    }
+
+   /** Draw the handles of the shape
+     * @param g     the Graphics control
+     */
+    public void drawHandles(Graphics g) {
+        drawHandles(g, getX(), getY());
+    }
+
+   /** Draw the handles of the shape with its top left corner at (x,y)
+     * @param g     the Graphics control
+     * @param x     the x-coordinate to draw at
+     * @param y     the y-coordinate to draw at
+     */
+    public void drawHandles(Graphics g, int x, int y) {
+        if (isSelected()) {
+			int width = getWidth(), height = getHeight();
+			g.setColor(Color.black);
+			g.fillRect(x -2, y-2, 4, 4);
+			g.fillRect(x + width -2, y + height -2, 4, 4);
+			g.fillRect(x -2, y + height -2, 4, 4);
+			g.fillRect(x + width -2, y-2, 4, 4);
+        }
+    }
+
+    /** Reset the margin for the shape
+     *    The margin is shared by every shape in the same store.
+     * @param w     the margin width
+     * @param h     the margin height
+     */
+    public void setMarginSize(int w, int h) {
+        store.setMarginSize(w, h);
+    }
+
+    /** Return the margin width/height of the animation panel area.
+     * @return the margin width/height
+     */
+    public int getMarginWidth() { return store.marginWidth; }
+
+    public int getMarginHeight() { return store.marginHeight; }
+
+    /** abstract contains method
+     * Returns whether the point p is inside the shape or not.
+     * @param p    the mouse point
+     */
+    public abstract boolean contains(Point p);
+
+    /** draw the shape at its current position
+     * @param g     the Graphics control
+     */
+    public void draw(Graphics g) {
+        draw(g, getX(), getY());
+    }
+
+    /** draw the shape between its previous and current position
+     * @param g     the Graphics control
+     * @param alpha the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    public void draw(Graphics g, double alpha) {
+        draw(g, store.renderX(index, alpha), store.renderY(index, alpha));
+    }
+
+    /** abstract draw method
+     * draw the shape with its top left corner at (x,y)
+     * @param g     the Graphics control
+     * @param x     the x-coordinate to draw at
+     * @param y     the y-coordinate to draw at
+     */
+    public abstract void draw(Graphics g, int x, int y);
+
+    /** Set the path of the shape.
+     * @param pathID     the integer value of the path
+     *    MovingPath.FALLING is the falling path
+     */
+    public void setPath(int pathID) {
+        store.setPath(index, pathID);
+    }
+
+    /** Return the path id of the shape.
+     * @return MovingPath.FALLING or MovingPath.BOUNCING
+     */
+    public int getPath() { return store.pathType[index]; }
+
+    /** move the shape by the path, remembering where it was
+     */
+    public void move() {
+        store.move(index, index + 1);
+    }
+
+    // Nested class ===================================================================== Nested class
+    /*
+     *    ===============================================================================
+     *    MovingPath : The superclass of all paths.
+     *    A path can change the current position of a shape in a store.
+     *    Paths keep no state of their own, so one instance serves every shape.
+     *    ===============================================================================
+     */
+
+    public static abstract class MovingPath {
+        public static final int FALLING = 0; // The Id of the moving path
+        public static final int BOUNCING = 1; // The Id of the moving path
+        static final MovingPath[] PATHS = { new FallingPath(), new BouncingPath(5, 10) }; // indexed by Id
+
+        /** constructor
+         */
+        public MovingPath() { }
+
+        /** return the path for an Id
+         * @param pathID    the Id of the path
+         * @return the path, or null if there is no such path
+         */
+        public static MovingPath forId(int pathID) {
+            return pathID >= 0 && pathID < PATHS.length ? PATHS[pathID] : null;
+        }
+
+        /** abstract start method
+        * set up the path state of a shape
+        * @param s    the store holding the shape
+        * @param i    the index of the shape
+        */
+        public abstract void start(ShapeStore s, int i);
+
+        /** abstract move method
+        * move the shape according to the path
+        * @param s    the store holding the shape
+        * @param i    the index of the shape
+        */
+        public abstract void move(ShapeStore s, int i);
+
+        /** abstract evaluate method
+        * put the shape where the path has it a number of moves after its origin, in one step
+        * @param s        the store holding the shape
+        * @param i        the index of the shape
+        * @param ticks    the number of moves since the origin
+        */
+        public abstract void evaluate(ShapeStore s, int i, long ticks);
+    }
+
+    /*
+     *  ===============================================================================
+     *  FallingPath : A falling path.
+     *  ===============================================================================
+     */
+    public static class FallingPath extends MovingPath {
+        static final double STEP = 0.5;	// step of the sine wave per move
+        static final int DELTA_Y = 5;	// falling distance per move
+        static final double SWING = 0.5 / Math.sin(STEP / 2);	// scales the sum of the sine wave, see swing()
+
+        /** initialise values for a falling path
+        */
+        public void start(ShapeStore s, int i) {
+            s.amplitude[i] = s.random.nextDouble() * 20; //set amplitude variables
+            s.phase[i] = 0;
+            s.deltaX[i] = 0;
+            s.deltaY[i] = DELTA_Y;
+       }
+
+       /** move the shape
+       */
+       public void move(ShapeStore s, int i) {
+           double phase = s.phase[i] + STEP;
+           s.phase[i] = phase;
+           s.x[i] = s.originX[i] + FastTrig.round(s.amplitude[i] * (swing(phase) - swing(s.originPhase[i])));
+           int y = s.y[i] + s.deltaY[i];
+           if (y > s.marginHeight) { // if it reaches the bottom of the frame, start again from the top
+               y = 0;
+               s.prevY[i] = 0;  // don't interpolate across the jump
+           }
+           s.y[i] = y;
+       }
+
+       /** return a function whose difference between two phases is the sum of
+        *    sin(p) over the steps between them, sin(p0 + STEP) + ... + sin(p1),
+        *    so the sideways swing from the origin needs no stepping;
+        *    VectorMoveKernel repeats these steps lane by lane, so keep the two alike
+        */
+       static double swing(double phase) {
+           return -FastTrig.cos(phase + STEP / 2) * SWING;
+       }
+
+       /** put the shape where the path has it a number of moves after its origin
+       */
+       public void evaluate(ShapeStore s, int i, long ticks) {
+           double phase = s.originPhase[i] + ticks * STEP;	// exact, the phase is a multiple of STEP
+           s.phase[i] = phase;
+           s.x[i] = s.originX[i] + FastTrig.round(s.amplitude[i] * (swing(phase) - swing(s.originPhase[i])));
+           int y = s.originY[i], d = s.originDeltaY[i], h = s.marginHeight;
+           long first = Math.max(1, Math.floorDiv(h - y, d) + 1);	// the move which first goes past the bottom
+           if (ticks < first)
+               s.y[i] = (int) (y + ticks * d);
+           else	// from then on it falls from the top again every floor(h / d) + 1 moves
+               s.y[i] = (int) ((ticks - first) % (Math.max(0, h) / d + 1) * d);
+           s.deltaY[i] = d;
+       }
+    }
+    /*
+     *  ===============================================================================
+     *  BouncingPath : A Bouncing path.
+     *  ===============================================================================
+     */
+
+
+    public static class BouncingPath extends MovingPath{
+        private final int startDeltaX, startDeltaY;	// moving distance of a new path
+
+        /** constructor
+         */
+    	public BouncingPath(int x, int y){
+    		startDeltaX = x;
+    		startDeltaY = y;
+    	}
+
+        /** initialise values for a bouncing path
+        */
+        public void start(ShapeStore s, int i) {
+            s.deltaX[i] = startDeltaX;
+            s.deltaY[i] = startDeltaY;
+        }
+
+    	public void move(ShapeStore s, int i){
+    		int deltaX = s.deltaX[i], deltaY = s.deltaY[i];
+    		int x = s.x[i] + deltaX;
+    		int y = s.y[i] + deltaY;
+
+    		if ((x < 0) && (deltaX < 0)){
+    			s.deltaX[i] = -deltaX;
+    			x = 0;
+    		}else if ((x + s.width[i] > s.marginWidth) && deltaX > 0){
+    			s.deltaX[i] = -deltaX;
+    			x = s.marginWidth - s.width[i];
+    		}
+
+    		if ((y < 0) && (deltaY < 0)){
+    			s.deltaY[i] = -deltaY;
+    			y = 0;
+    		}else if((y + s.height[i] > s.marginHeight) && (deltaY > 0)){
+    			s.deltaY[i] = -deltaY;
+    			y = s.marginHeight - s.height[i];
+    		}
+    		s.x[i] = x;
+    		s.y[i] = y;
+    	}
+
+        /** put the shape where the path has it a number of moves after its origin;
+         *    on each axis the shape goes to one side, then back and forth between the sides
+        */
+        public void evaluate(ShapeStore s, int i, long ticks) {
+            long x = bounce(s.originX[i], s.originDeltaX[i], s.marginWidth - s.width[i], ticks);
+            long y = bounce(s.originY[i], s.originDeltaY[i], s.marginHeight - s.height[i], ticks);
+            s.x[i] = (int) (x >> 32);
+            s.deltaX[i] = (int) x;
+            s.y[i] = (int) (y >> 32);
+            s.deltaY[i] = (int) y;
+        }
+
+        /** return the position and moving distance on one axis a number of moves from a start
+         * @param p        the position at the start
+         * @param d        the moving distance at the start
+         * @param max      the largest position, where the far side stops the shape
+         * @param ticks    the number of moves
+         * @return the position in the high 32 bits and the moving distance in the low 32 bits
+         */
+        static long bounce(int p, int d, int max, long ticks) {
+            if (d == 0 || ticks == 0)
+                return pack(p, d);
+            long speed = Math.abs(d);
+            // moves to reach the side it is heading for; it stops there for good and turns
+            long first = Math.max(1, (d > 0 ? Math.floorDiv(max - p, speed) : Math.floorDiv(p, speed)) + 1);
+            if (ticks < first)
+                return pack((int) (p + ticks * d), d);
+            long leg = Math.max(1, Math.floorDiv(max, speed) + 1);	// moves from one side to the other
+            long legs = (ticks - first) / leg, step = (ticks - first) % leg;
+            boolean fromMax = (d > 0) == (legs % 2 == 0);	// the side of the current leg
+            int from = fromMax ? max : 0;
+            if (step == 0)
+                return pack(from, fromMax ? -(int) speed : (int) speed);
+            return fromMax ? pack((int) (max - step * speed), -(int) speed) : pack((int) (step * speed), (int) speed);
+        }
+
+        private static long pack(int p, int d) {
+            return ((long) p << 32) | (d & 0xFFFFFFFFL);
+        }
+    }
+
+    public abstract double area();
+
+
+
+
+
+}
@@ -4,6 +4,9 @@
  *  MovingSquare.java : The class of all squares.
  *  ===============================================================================
  */
+
+package bouncing;
+
 import java.awt.*;
 
 public class MovingSquare extends MovingShape {
@@ -12,22 +15,29 @@ public class MovingSquare extends MovingShape {
 	/** constructors for a rectangle
 	 */
 	public MovingSquare() {
-		super();
+		super(ShapeStore.SQUARE);
 	}
 
 	public MovingSquare(int x, int y, int mw, int mh, Color border, Color fill, int pathType, int w, int h) {
-		super(x, y, mw,  mh,  border,  fill,  pathType, w, h);
+		super(ShapeStore.SQUARE, x, y, mw,  mh,  border,  fill,  pathType, w, h);
+	}
+
+	/** constructor for a view of a shape in a store
+	 */
+	public MovingSquare(ShapeStore store, int index) {
+		super(store, index);
 	}
 
-	/** draws the square
+	/** draws the square with its top left corner at (x,y)
 	 */
-	public void draw(Graphics g) {
+	public void draw(Graphics g, int x, int y) {
 		Graphics2D g2d = (Graphics2D) g;
-		g2d.setPaint(fillColor);
+		int width = getWidth();
+		g2d.setPaint(getFillColor());
 		g2d.fillRect(x, y, width, width);		
-		g2d.setPaint(borderColor);
+		g2d.setPaint(getBorderColor());
 		g2d.drawRect(x, y, width, width);
-		drawHandles(g);
+		drawHandles(g, x, y);
 		
 		
 	}
@@ -35,10 +45,11 @@ public class MovingSquare extends MovingShape {
 	/** Checks if in shape
 	 */
 	public boolean contains(Point point) {
+		int x = getX(), y = getY(), width = getWidth();
 		return (x <= point.x && point.x <= (x + width + 1)	&& y <= point.y && point.y <= (y + width + 1));
 	}
 	
 
 	
-	public double area(){return width*width;}
-}
\ No newline at end of file
+	public double area(){return getWidth()*getWidth();}
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ *  ===============================================================================
+ *  ParallelMover.java : Moves all shapes of a store on a ForkJoinPool.
+ *  Every path only touches the state of its own shape, so the store can be split
+ *  into contiguous chunks which are moved on different cores.
+ *  Small stores are moved on the calling thread. Close a mover once it is replaced,
+ *  so its worker threads stop.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.util.concurrent.*;
+
+public class ParallelMover implements AutoCloseable {
+    public static final int DEFAULT_THRESHOLD = 10000;	// below this many shapes stay sequential
+    private final ForkJoinPool pool;	// the worker threads
+    private final int threshold;		// the number of shapes not worth splitting further
+
+    /** constructor to create a mover using all cores
+     */
+    public ParallelMover() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    }
+
+    /** constructor to create a mover
+     * @param parallelism    the number of worker threads
+     * @param threshold      the number of shapes below which moving stays sequential
+     */
+    public ParallelMover(int parallelism, int threshold) {
+        if (parallelism < 1 || threshold < 1)
+            throw new IllegalArgumentException("parallelism and threshold must be positive");
+        pool = new ForkJoinPool(parallelism);
+        this.threshold = threshold;
+    }
+
+    /** return the number of worker threads
+     * @return the parallelism level
+     */
+    public int getParallelism() { return pool.getParallelism(); }
+
+    /** return the number of shapes below which moving stays sequential
+     * @return the threshold
+     */
+    public int getThreshold() { return threshold; }
+
+    /** move every shape in the store by its path
+     * @param store    the shapes to move
+     */
+    public void move(ShapeStore store) {
+        int size = store.size();
+        if (size < threshold || pool.getParallelism() == 1)
+            store.move(0, size);
+        else	// aim for a few chunks per worker so stolen work balances out
+            pool.invoke(new MoveTask(store, 0, size, Math.max(threshold, size / (pool.getParallelism() * 4))));
+        store.time++;
+    }
+
+    /** stop the worker threads; the mover must not move shapes after this
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    /*
+     *  ===============================================================================
+     *  MoveTask : Moves a range of shapes, splitting it in half while it is large.
+     *  ===============================================================================
+     */
+    private static class MoveTask extends RecursiveAction {
+        private final ShapeStore store;
+        private final int from, to, chunk;
+
+        MoveTask(ShapeStore store, int from, int to, int chunk) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        protected void compute() {
+            if (to - from <= chunk) {
+                store.move(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MoveTask(store, from, middle, chunk), new MoveTask(store, middle, to, chunk));
+            }
+        }
+    }
+}
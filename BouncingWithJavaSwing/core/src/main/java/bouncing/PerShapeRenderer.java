@@ -0,0 +1,26 @@
+/*
+ *  ===============================================================================
+ *  PerShapeRenderer.java : Draws the shapes one by one, in store order,
+ *  through MovingShape.draw.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+
+public class PerShapeRenderer implements ShapeRenderer {
+
+    /** draw every shape in the store
+     * @param g        the Graphics control
+     * @param s        the store holding the shapes
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    public void render(Graphics2D g, ShapeStore s, double alpha) {
+        // one reusable view per shape type, indexed by the shape type
+        MovingShape[] views = { new MovingRectangle(s, 0), new MovingSquare(s, 0) };
+        for (int i = 0; i < s.size(); i++) {
+            views[s.shapeType(i)].at(i).draw(g, alpha);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ *  ===============================================================================
+ *  RunPlayer.java : Plays back a log written by RunRecorder into a ShapeStore,
+ *  one frame per tick. The keyframes are found when the log is opened, so playback
+ *  can jump to any tick by decoding from the keyframe before it.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static bouncing.RunRecorder.*;
+
+public class RunPlayer implements Closeable {
+    private static final int FRAME_HEADER = 4 + 1 + 8;	// length, kind and tick
+    private static final int FILE_HEADER = 12;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long[] keyPositions = new long[16], keyTicks = new long[16];	// where each keyframe starts and its tick
+    private int keyframes = 0;
+    private long position = FILE_HEADER;	// where the next frame starts
+    private long firstTick = -1, lastTick = -1;
+    private short[] colors = new short[0];	// recorded palette index to the index in the store's palette
+    private int colorCount = 0;
+    private int version;	// the version of RunRecorder which wrote the log
+
+    /** constructor to open a log and find its keyframes
+     * @param file    the file written by RunRecorder
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    public RunPlayer(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            readFully(header, 0);
+            version = header.getInt() == MAGIC ? header.getInt() : -1;
+            if (version < 1 || version > VERSION)
+                throw new IOException(file + " is not a recorded run");
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER);
+            for (long p = FILE_HEADER; p + FRAME_HEADER <= channel.size(); ) {
+                frame.clear();
+                readFully(frame, p);
+                int length = frame.getInt();
+                byte kind = frame.get();
+                long tick = frame.getLong();
+                if (length < FRAME_HEADER - 4)
+                    throw new IOException(file + " is corrupt at the frame at byte " + p);
+                if (p + 4 + length > channel.size())	// cut short, e.g. the recording was not closed
+                    break;
+                if (kind == KEYFRAME) {
+                    if (keyframes == keyPositions.length) {
+                        keyPositions = Arrays.copyOf(keyPositions, keyframes * 2);
+                        keyTicks = Arrays.copyOf(keyTicks, keyframes * 2);
+                    }
+                    keyPositions[keyframes] = p;
+                    keyTicks[keyframes++] = tick;
+                }
+                if (firstTick < 0)
+                    firstTick = tick;
+                lastTick = tick;
+                p += 4 + length;
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (keyframes > 0)
+            position = keyPositions[0];
+    }
+
+    /** return the tick of the first/last complete frame
+     * @return the tick, or -1 if there are no frames
+     */
+    public long getFirstTick() { return firstTick; }
+
+    public long getLastTick() { return lastTick; }
+
+    /** put the shapes as they were in the next frame
+     * @param s    the store to fill
+     * @return false if there are no more frames
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public boolean next(ShapeStore s) throws IOException {
+        ByteBuffer frame = readFrame(position);
+        if (frame == null)
+            return false;
+        long p = position;
+        position += 4 + frame.remaining();
+        decode(frame, s, p);
+        return true;
+    }
+
+    /** put the shapes as they were at a tick, or the last frame before it
+     * @param s       the store to fill
+     * @param tick    the tick to go to
+     * @return false if the log has no frame that early
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public boolean seek(ShapeStore s, long tick) throws IOException {
+        int k = keyframes - 1;
+        while (k >= 0 && keyTicks[k] > tick)
+            k--;
+        if (k < 0)
+            return false;
+        position = keyPositions[k];
+        next(s);
+        for (ByteBuffer frame; (frame = readFrame(position)) != null && frame.getLong(1) <= tick; ) {
+            long p = position;
+            position += 4 + frame.remaining();
+            decode(frame, s, p);
+        }
+        return true;
+    }
+
+    /** go back to the first frame
+     */
+    public void rewind() {
+        position = keyframes > 0 ? keyPositions[0] : FILE_HEADER;
+    }
+
+    /** close the log
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** read the frame at a position, without its length
+     * @return the frame, or null at the end of the log
+     */
+    private ByteBuffer readFrame(long p) throws IOException {
+        if (p + FRAME_HEADER > channel.size())
+            return null;
+        ByteBuffer head = ByteBuffer.allocate(4);
+        readFully(head, p);
+        int length = head.getInt();
+        if (length < FRAME_HEADER - 4)
+            throw new IOException("the recorded run is corrupt at the frame at byte " + p);
+        if (p + 4 + length > channel.size())
+            return null;
+        if (buffer.capacity() < length)
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+        buffer.clear().limit(length);
+        readFully(buffer, p + 4);
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer b, long p) throws IOException {
+        while (b.hasRemaining()) {
+            int read = channel.read(b, p);
+            if (read < 0)
+                throw new EOFException();
+            p += read;
+        }
+        b.flip();
+    }
+
+    /** apply a frame to the store, checking every field as it is read
+     *    A frame cut short or holding a field out of range is corrupt; the store then
+     *    keeps the shapes it had, or none if the frame was a keyframe.
+     * @param p    where the frame starts in the log
+     * @throws IOException if the frame is corrupt
+     */
+    private void decode(ByteBuffer b, ShapeStore s, long p) throws IOException {
+        try {
+            byte kind = b.get();
+            check(kind == KEYFRAME || kind == DELTA);
+            boolean key = kind == KEYFRAME;
+            long time = b.getLong();
+            int width = getVarint(b), height = getVarint(b);
+            int paletteSize = getVarint(b), known = key ? 0 : colorCount;
+            check(width >= 0 && height >= 0 && paletteSize >= known && paletteSize <= ColorPalette.MAX_COLORS
+                && (paletteSize - known) * 4L <= b.remaining());
+            s.time = time;
+            s.setMarginSize(width, height);
+            if (colors.length < paletteSize)
+                colors = Arrays.copyOf(colors, Math.max(paletteSize, colors.length * 2));
+            for (int c = known; c < paletteSize; c++) {	// a keyframe has the whole palette
+                Color color = new Color(b.getInt(), true);
+                if (!s.palette.hasRoom(0, color))
+                    throw new IOException("the palette is full");
+                colors[c] = (short) s.palette.intern(color);
+            }
+            colorCount = paletteSize;
+            int n = getVarint(b), before = s.size;
+            check(n >= 0 && n <= b.remaining());	// a flags byte at least for each shape
+            if (key)
+                s.clear();	// keyframes are deltas from nothing
+            s.ensureCapacity(n);
+            for (int i = n; i < s.size; i++)	// shapes which are gone
+                s.setSelected(i, false);
+            for (int i = 0; i < n; i++)
+                decodeShape(b, s, i, i < s.size, i < before, paletteSize);
+            s.size = n;
+        } catch (BufferUnderflowException | IOException e) {
+            throw new IOException("the recorded run is corrupt at the frame at byte " + p, e);
+        } finally {
+            s.rebuild();
+        }
+    }
+
+    /** apply the fields of one shape in a frame
+     * @param known          whether the fields are changes from the frame before
+     * @param existed        whether the store held the shape before the frame
+     * @param paletteSize    the number of colours the frame has
+     */
+    private void decodeShape(ByteBuffer b, ShapeStore s, int i, boolean known, boolean existed, int paletteSize) throws IOException {
+        int flags = b.get() & 0xFF;
+        int baseX = known ? s.x[i] : 0, baseY = known ? s.y[i] : 0;
+        int x = (flags & X) != 0 ? baseX + unzigzag(getVarint(b)) : baseX;
+        int y = (flags & Y) != 0 ? baseY + unzigzag(getVarint(b)) : baseY;
+        if ((flags & PREV) != 0) {
+            s.prevX[i] = x + unzigzag(getVarint(b));
+            s.prevY[i] = y + unzigzag(getVarint(b));
+        } else {
+            s.prevX[i] = baseX;
+            s.prevY[i] = baseY;
+        }
+        s.x[i] = x;
+        s.y[i] = y;
+        if ((flags & SIZE) != 0) {
+            int w = (known ? s.width[i] : 0) + unzigzag(getVarint(b)), h = (known ? s.height[i] : 0) + unzigzag(getVarint(b));
+            check(w >= 0 && h >= 0);
+            s.width[i] = w;
+            s.height[i] = h;
+        }
+        if ((flags & COLORS) != 0) {
+            int border = getVarint(b), fill = getVarint(b);
+            check(border >= 0 && border < paletteSize && fill >= 0 && fill < paletteSize);
+            s.borderColor[i] = colors[border];
+            s.fillColor[i] = colors[fill];
+        }
+        s.shapeType[i] = (byte) ((flags & SQUARE) != 0 ? ShapeStore.SQUARE : ShapeStore.RECTANGLE);
+        s.selected[i] = (flags & SELECTED) != 0;
+        if ((flags & PATH) != 0) {	// the path state to go on from once playback stops
+            int path = b.get();
+            check(MovingShape.MovingPath.forId(path) != null);
+            s.pathType[i] = (byte) path;
+            s.deltaX[i] = unzigzag(getVarint(b));
+            s.deltaY[i] = unzigzag(getVarint(b));
+            s.amplitude[i] = Double.longBitsToDouble(b.getLong());
+            check(path != MovingShape.MovingPath.FALLING || s.deltaY[i] > 0 && Double.isFinite(s.amplitude[i]));	// seeking divides by deltaY
+            if (!existed)
+                s.phase[i] = 0;
+        } else if (!existed) {	// a log from before the path fields: new shapes bounce on from where they are
+            s.pathType[i] = MovingShape.MovingPath.BOUNCING;
+            s.setPath(i, MovingShape.MovingPath.BOUNCING);
+        }
+    }
+
+    private static void check(boolean valid) throws IOException {
+        if (!valid)
+            throw new IOException("field out of range");
+    }
+
+    /** read an int written by RunRecorder.putVarint
+     * @throws IOException if it runs over five bytes
+     */
+    static int getVarint(ByteBuffer b) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte next = b.get();
+            v |= (next & 0x7F) << shift;
+            if (next >= 0)
+                return v;
+        }
+        throw new IOException("varint over five bytes");
+    }
+
+    static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  ===============================================================================
+ *  RunRecorder.java : Writes what every shape looks like after each tick to a
+ *  compact binary log, which RunPlayer plays back.
+ *
+ *  The log is a header followed by frames:
+ *    header  int MAGIC, int VERSION, int keyframe interval
+ *    frame   int length of the rest of the frame, byte KEYFRAME or DELTA, long tick,
+ *            varint margin width and height, varint palette size and the ARGB of the
+ *            colours added since the last frame (all colours in a keyframe), varint number
+ *            of shapes, then per shape
+ *            a flags byte and the fields its flags say changed, in the order of the flags.
+ *            The path fields are the path type byte, deltaX and deltaY, and the bits of
+ *            the amplitude as a long; the phase is left out, as it changes every tick.
+ *  Numbers are varints, zigzagged where they can be negative. A delta frame stores each
+ *  field as the change since the last frame; a keyframe stores it as the change from zero,
+ *  so it does not depend on any frame before it and playback can start there.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class RunRecorder implements Closeable {
+    static final int MAGIC = 0x424E4352;	// "BNCR"
+    static final int VERSION = 2;	// 2 added the path fields
+    static final byte KEYFRAME = 1, DELTA = 2;	// the kinds of frame
+    static final int X = 1, Y = 2, PREV = 4, SIZE = 8, COLORS = 16;	// flags for the fields which follow
+    static final int SQUARE = 32, SELECTED = 64;	// flags for the state of the shape
+    static final int PATH = 128;	// flag for the path fields which follow, last of all
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 300;	// ticks between keyframes
+    private static final int MAX_SHAPE_BYTES = 1 + 6 * 5 + 2 * 3 + 1 + 2 * 5 + 8;	// flags, six int fields, two colour indices, the path
+
+    private final FileChannel channel;
+    private final int keyframeInterval;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private int frames = 0;			// the number of frames written
+    private int colors = 0;			// the number of palette colours written
+    private int lastSize = 0;		// the number of shapes in the last frame
+    private int[] lastX = new int[0], lastY = new int[0], lastWidth = new int[0], lastHeight = new int[0];	// the shapes in the last frame
+    private short[] lastBorder = new short[0], lastFill = new short[0];
+    private byte[] lastPath = new byte[0];
+    private int[] lastDeltaX = new int[0], lastDeltaY = new int[0];
+    private double[] lastAmplitude = new double[0];
+
+    /** constructor to start a log with the default keyframe interval
+     * @param file    the file to write, replaced if it exists
+     * @throws IOException if the file cannot be created
+     */
+    public RunRecorder(Path file) throws IOException {
+        this(file, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /** constructor to start a log
+     * @param file                the file to write, replaced if it exists
+     * @param keyframeInterval    the number of frames from one keyframe to the next
+     * @throws IOException if the file cannot be created
+     */
+    public RunRecorder(Path file, int keyframeInterval) throws IOException {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(this.keyframeInterval);
+        flush();
+    }
+
+    /** append a frame with the shapes as they are now
+     * @param s    the store holding the shapes
+     * @throws IOException if the frame cannot be written
+     */
+    public void record(ShapeStore s) throws IOException {
+        int n = s.size;
+        boolean key = frames % keyframeInterval == 0;
+        int paletteSize = s.palette.size();
+        if (key)
+            colors = 0;
+        ensureRoom(32 + (paletteSize - colors) * 4L + (long) n * MAX_SHAPE_BYTES);
+        if (lastX.length < n) {
+            int capacity = Math.max(n, lastX.length * 2);
+            lastX = Arrays.copyOf(lastX, capacity);
+            lastY = Arrays.copyOf(lastY, capacity);
+            lastWidth = Arrays.copyOf(lastWidth, capacity);
+            lastHeight = Arrays.copyOf(lastHeight, capacity);
+            lastBorder = Arrays.copyOf(lastBorder, capacity);
+            lastFill = Arrays.copyOf(lastFill, capacity);
+            lastPath = Arrays.copyOf(lastPath, capacity);
+            lastDeltaX = Arrays.copyOf(lastDeltaX, capacity);
+            lastDeltaY = Arrays.copyOf(lastDeltaY, capacity);
+            lastAmplitude = Arrays.copyOf(lastAmplitude, capacity);
+        }
+        if (key) {	// keyframes are deltas from nothing
+            Arrays.fill(lastX, 0, lastSize, 0);
+            Arrays.fill(lastY, 0, lastSize, 0);
+            Arrays.fill(lastWidth, 0, lastSize, 0);
+            Arrays.fill(lastHeight, 0, lastSize, 0);
+            Arrays.fill(lastBorder, 0, lastSize, (short) 0);
+            Arrays.fill(lastFill, 0, lastSize, (short) 0);
+        }
+        int start = buffer.position();
+        buffer.putInt(0);	// the length, filled in below
+        buffer.put(key ? KEYFRAME : DELTA);
+        buffer.putLong(s.time);
+        putVarint(buffer, s.marginWidth);
+        putVarint(buffer, s.marginHeight);
+        putVarint(buffer, paletteSize);
+        for (; colors < paletteSize; colors++)
+            buffer.putInt(s.palette.color(colors).getRGB());
+        putVarint(buffer, n);
+        for (int i = 0; i < n; i++) {
+            boolean known = !key && i < lastSize;	// otherwise the baseline is zero
+            int x = s.x[i], y = s.y[i], w = s.width[i], h = s.height[i];
+            int baseX = known ? lastX[i] : 0, baseY = known ? lastY[i] : 0;
+            int flags = (s.shapeType[i] == ShapeStore.SQUARE ? SQUARE : 0) | (s.selected[i] ? SELECTED : 0);
+            if (x != baseX) flags |= X;
+            if (y != baseY) flags |= Y;
+            if (s.prevX[i] != baseX || s.prevY[i] != baseY) flags |= PREV;	// playback draws from the last frame unless told otherwise
+            if (!known || w != lastWidth[i] || h != lastHeight[i]) flags |= SIZE;
+            if (!known || s.borderColor[i] != lastBorder[i] || s.fillColor[i] != lastFill[i]) flags |= COLORS;
+            if (!known || s.pathType[i] != lastPath[i] || s.deltaX[i] != lastDeltaX[i] || s.deltaY[i] != lastDeltaY[i]
+                    || Double.doubleToLongBits(s.amplitude[i]) != Double.doubleToLongBits(lastAmplitude[i]))
+                flags |= PATH;
+            buffer.put((byte) flags);
+            if ((flags & X) != 0) putVarint(buffer, zigzag(x - baseX));
+            if ((flags & Y) != 0) putVarint(buffer, zigzag(y - baseY));
+            if ((flags & PREV) != 0) {
+                putVarint(buffer, zigzag(s.prevX[i] - x));
+                putVarint(buffer, zigzag(s.prevY[i] - y));
+            }
+            if ((flags & SIZE) != 0) {
+                putVarint(buffer, zigzag(w - (known ? lastWidth[i] : 0)));
+                putVarint(buffer, zigzag(h - (known ? lastHeight[i] : 0)));
+            }
+            if ((flags & COLORS) != 0) {
+                putVarint(buffer, s.borderColor[i]);
+                putVarint(buffer, s.fillColor[i]);
+            }
+            if ((flags & PATH) != 0) {
+                buffer.put(s.pathType[i]);
+                putVarint(buffer, zigzag(s.deltaX[i]));
+                putVarint(buffer, zigzag(s.deltaY[i]));
+                buffer.putLong(Double.doubleToLongBits(s.amplitude[i]));
+            }
+            lastX[i] = x;
+            lastY[i] = y;
+            lastWidth[i] = w;
+            lastHeight[i] = h;
+            lastBorder[i] = s.borderColor[i];
+            lastFill[i] = s.fillColor[i];
+            lastPath[i] = s.pathType[i];
+            lastDeltaX[i] = s.deltaX[i];
+            lastDeltaY[i] = s.deltaY[i];
+            lastAmplitude[i] = s.amplitude[i];
+        }
+        lastSize = n;
+        buffer.putInt(start, buffer.position() - start - 4);
+        flush();
+        frames++;
+    }
+
+    /** return the number of frames written so far
+     * @return the number of frames
+     */
+    public int getFrames() { return frames; }
+
+    /** finish the log
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void ensureRoom(long bytes) {
+        if (buffer.remaining() < bytes) {
+            if (bytes > Integer.MAX_VALUE - buffer.position())
+                throw new IllegalStateException("frame too large: " + bytes + " bytes");
+            ByteBuffer bigger = ByteBuffer.allocate((int) Math.max(buffer.capacity() * 2L, buffer.position() + bytes));
+            buffer.flip();
+            buffer = bigger.put(buffer);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /** write an int in 7 bit groups, low group first, with the top bit set on all but the last byte
+     */
+    static void putVarint(ByteBuffer b, int v) {
+        while ((v & ~0x7F) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    /** map small negative numbers to small positive ones: 0, -1, 1, -2, ... become 0, 1, 2, 3, ...
+     */
+    static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+}
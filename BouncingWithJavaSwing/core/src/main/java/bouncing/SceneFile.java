@@ -0,0 +1,190 @@
+/*
+ *  ===============================================================================
+ *  SceneFile.java : Saves and loads every shape of a store, path state included,
+ *  as a fixed-layout binary file read and written through memory-mapped buffers.
+ *
+ *  The file is a header followed by one column per field of the store, in the
+ *  order of COLUMNS, each starting on an 8 byte boundary and little endian:
+ *    header  int MAGIC, int VERSION, int number of shapes, int margin width,
+ *            int margin height, long tick, int palette size, the ARGB of each colour
+ *  A column holds the field for every shape in a row, so loading is a bulk copy
+ *  from the mapped file into each array of the store.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+public class SceneFile {
+    static final int MAGIC = 0x424E4353;	// "BNCS"
+    static final int VERSION = 1;
+    private static final int HEADER = 4 * 5 + 8 + 4;
+    // the bytes per shape of each column; ints, then bytes, doubles, shorts, the selection and the origin
+    private static final int[] COLUMNS = { 4, 4, 4, 4, 4, 4, 4, 4, 1, 1, 8, 8, 2, 2, 1, 4, 4, 4, 4, 8, 8 };
+
+    private SceneFile() { }
+
+    /** write every shape in a store to a file
+     * @param s       the store holding the shapes
+     * @param file    the file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(ShapeStore s, Path file) throws IOException {
+        int n = s.size, colors = s.palette.size();
+        long[] offsets = layout(n, colors);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, offsets[0]);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(s.marginWidth).putInt(s.marginHeight);
+            header.putLong(s.time).putInt(colors);
+            for (int c = 0; c < colors; c++)
+                header.putInt(s.palette.color(c).getRGB());
+            int k = 0;
+            column(channel, offsets, k++, n).asIntBuffer().put(s.x, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.y, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.prevX, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.prevY, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.deltaX, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.deltaY, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.width, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.height, 0, n);
+            column(channel, offsets, k++, n).put(s.shapeType, 0, n);
+            column(channel, offsets, k++, n).put(s.pathType, 0, n);
+            column(channel, offsets, k++, n).asDoubleBuffer().put(s.amplitude, 0, n);
+            column(channel, offsets, k++, n).asDoubleBuffer().put(s.phase, 0, n);
+            column(channel, offsets, k++, n).asShortBuffer().put(s.borderColor, 0, n);
+            column(channel, offsets, k++, n).asShortBuffer().put(s.fillColor, 0, n);
+            MappedByteBuffer selected = column(channel, offsets, k++, n);
+            for (int i = 0; i < n; i++)
+                selected.put(s.selected[i] ? (byte) 1 : (byte) 0);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.originX, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.originY, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.originDeltaX, 0, n);
+            column(channel, offsets, k++, n).asIntBuffer().put(s.originDeltaY, 0, n);
+            column(channel, offsets, k++, n).asDoubleBuffer().put(s.originPhase, 0, n);
+            column(channel, offsets, k++, n).asLongBuffer().put(s.originTime, 0, n);
+        }
+    }
+
+    /** replace the shapes in a store with the shapes in a file
+     * @param file    the file written by save
+     * @param s       the store to fill, emptied if the file turns out to be corrupt
+     * @throws IOException if the file cannot be read or is not a scene
+     */
+    public static void load(Path file, ShapeStore s) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER)
+                throw new IOException(file + " is not a scene");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(file + " is not a scene");
+            int n = header.getInt(), width = header.getInt(), height = header.getInt();
+            long time = header.getLong();
+            int colors = header.getInt();
+            if (n < 0 || width < 0 || height < 0 || colors < 0 || colors > ColorPalette.MAX_COLORS)
+                throw new IOException(file + " is not a scene");
+            long[] offsets = layout(n, colors);
+            if (channel.size() < offsets[COLUMNS.length])
+                throw new IOException(file + " is cut short");
+            // colour indices in the file to indices in the store's palette
+            ByteBuffer palette = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, colors * 4L).order(ByteOrder.LITTLE_ENDIAN);
+            Color[] read = new Color[colors];
+            for (int c = 0; c < colors; c++)
+                read[c] = new Color(palette.getInt(), true);
+            if (!s.palette.hasRoom(0, read))
+                throw new IOException(file + " has more new colours than the palette has room for");
+            short[] map = new short[colors];
+            boolean same = true;
+            for (int c = 0; c < colors; c++) {
+                map[c] = (short) s.palette.intern(read[c]);
+                same &= map[c] == c;
+            }
+            s.clear();
+            s.ensureCapacity(n);
+            int k = 0;
+            read(channel, offsets, k++, n).asIntBuffer().get(s.x, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.y, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.prevX, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.prevY, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.deltaX, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.deltaY, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.width, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.height, 0, n);
+            read(channel, offsets, k++, n).get(s.shapeType, 0, n);
+            read(channel, offsets, k++, n).get(s.pathType, 0, n);
+            read(channel, offsets, k++, n).asDoubleBuffer().get(s.amplitude, 0, n);
+            read(channel, offsets, k++, n).asDoubleBuffer().get(s.phase, 0, n);
+            read(channel, offsets, k++, n).asShortBuffer().get(s.borderColor, 0, n);
+            read(channel, offsets, k++, n).asShortBuffer().get(s.fillColor, 0, n);
+            ByteBuffer selected = read(channel, offsets, k++, n);
+            for (int i = 0; i < n; i++)
+                s.selected[i] = selected.get() != 0;
+            read(channel, offsets, k++, n).asIntBuffer().get(s.originX, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.originY, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.originDeltaX, 0, n);
+            read(channel, offsets, k++, n).asIntBuffer().get(s.originDeltaY, 0, n);
+            read(channel, offsets, k++, n).asDoubleBuffer().get(s.originPhase, 0, n);
+            read(channel, offsets, k++, n).asLongBuffer().get(s.originTime, 0, n);
+            for (int i = 0; i < n; i++) {	// check now rather than fail in the middle of a tick
+                if (!validPath(s, i) || s.shapeType[i] < 0 || s.shapeType[i] > ShapeStore.SQUARE || s.width[i] < 0 || s.height[i] < 0
+                        || s.borderColor[i] < 0 || s.borderColor[i] >= colors || s.fillColor[i] < 0 || s.fillColor[i] >= colors)
+                    throw new IOException(file + " is corrupt at shape " + i);
+                if (!same) {
+                    s.borderColor[i] = map[s.borderColor[i]];
+                    s.fillColor[i] = map[s.fillColor[i]];
+                }
+            }
+            s.marginWidth = width;
+            s.marginHeight = height;
+            s.time = time;
+            s.size = n;
+            s.rebuild();
+        }
+    }
+
+    /** return whether a shape has a known path, in a state the path can go on from
+     *    A falling shape must fall, as seeking divides by how far it fell per move at its origin,
+     *    and its sine wave must be a number. Any moving distance bounces.
+     */
+    private static boolean validPath(ShapeStore s, int i) {
+        switch (s.pathType[i]) {
+            case MovingShape.MovingPath.FALLING:
+                return s.deltaY[i] > 0 && s.originDeltaY[i] > 0 && Double.isFinite(s.amplitude[i])
+                    && Double.isFinite(s.phase[i]) && Double.isFinite(s.originPhase[i]);
+            case MovingShape.MovingPath.BOUNCING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** return where each column starts, and where the file ends as the last entry
+     */
+    private static long[] layout(int n, int colors) {
+        long[] offsets = new long[COLUMNS.length + 1];
+        long p = HEADER + colors * 4L;
+        for (int k = 0; k < COLUMNS.length; k++) {
+            p = (p + 7) & ~7L;
+            offsets[k] = p;
+            p += (long) COLUMNS[k] * n;
+        }
+        offsets[COLUMNS.length] = p;
+        return offsets;
+    }
+
+    private static MappedByteBuffer column(FileChannel channel, long[] offsets, int k, int n) throws IOException {
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_WRITE, offsets[k], (long) COLUMNS[k] * n);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long[] offsets, int k, int n) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offsets[k], (long) COLUMNS[k] * n).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  ===============================================================================
+ *  SceneStats.java : Figures about the shapes in a store, kept up to date as the
+ *  shapes are added, resized, selected and cleared rather than counted again.
+ *  Areas are whole numbers, so they are summed exactly in longs. The bounding box
+ *  changes with every move, so the world measures it once per tick.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+public class SceneStats {
+    private long area;			// the total area of all shapes
+    private long selectedArea;	// the total area of the selected shapes
+    private final int[] shapeCounts = new int[2];	// the number of shapes by shape type
+    private final int[] pathCounts = new int[MovingShape.MovingPath.PATHS.length];	// the number of shapes by path type
+    private int left, top, right, bottom;	// the box around all shapes, as of the last measure
+
+    /** return the total area of all shapes
+     * @return the area in square pixels
+     */
+    public long getArea() { return area; }
+
+    /** return the total area of the selected shapes
+     * @return the area in square pixels
+     */
+    public long getSelectedArea() { return selectedArea; }
+
+    /** return the number of shapes of a type
+     * @param type    ShapeStore.RECTANGLE or ShapeStore.SQUARE
+     * @return the number of shapes
+     */
+    public int getShapeCount(int type) { return shapeCounts[type]; }
+
+    /** return the number of shapes on a path
+     * @param pathType    MovingShape.MovingPath.FALLING or BOUNCING
+     * @return the number of shapes
+     */
+    public int getPathCount(int pathType) { return pathCounts[pathType]; }
+
+    /** return the box around all shapes as of the last tick
+     * @return the box, empty if there are no shapes
+     */
+    public Rectangle getBounds() { return new Rectangle(left, top, right - left, bottom - top); }
+
+    /** copy the figures into other stats
+     * @param target    the stats to copy into
+     */
+    public void copyTo(SceneStats target) {
+        target.area = area;
+        target.selectedArea = selectedArea;
+        System.arraycopy(shapeCounts, 0, target.shapeCounts, 0, shapeCounts.length);
+        System.arraycopy(pathCounts, 0, target.pathCounts, 0, pathCounts.length);
+        target.left = left;
+        target.top = top;
+        target.right = right;
+        target.bottom = bottom;
+    }
+
+    /** return the area of a shape as it is drawn
+     */
+    static long area(ShapeStore s, int i) {
+        return (long) s.width[i] * s.height(i);
+    }
+
+    /** count a new shape, before its path is set
+     */
+    void added(ShapeStore s, int i) {
+        area += area(s, i);
+        shapeCounts[s.shapeType[i]]++;
+        pathCounts[s.pathType[i]]++;
+    }
+
+    /** account for a shape about to change its area
+     */
+    void resizing(ShapeStore s, int i) {
+        area -= area(s, i);
+        if (s.selected[i])
+            selectedArea -= area(s, i);
+    }
+
+    /** account for a shape whose area just changed
+     */
+    void resized(ShapeStore s, int i) {
+        area += area(s, i);
+        if (s.selected[i])
+            selectedArea += area(s, i);
+    }
+
+    /** move a shape from one path count to another
+     */
+    void pathChanged(int from, int to) {
+        pathCounts[from]--;
+        pathCounts[to]++;
+    }
+
+    /** account for a shape selected or deselected
+     */
+    void selectionChanged(ShapeStore s, int i, boolean selected) {
+        selectedArea += selected ? area(s, i) : -area(s, i);
+    }
+
+    /** account for every shape selected, none selected or the selection inverted
+     */
+    void selectedAll() { selectedArea = area; }
+
+    void selectedNone() { selectedArea = 0; }
+
+    void inverted() { selectedArea = area - selectedArea; }
+
+    /** forget every shape
+     */
+    void reset() {
+        area = selectedArea = 0;
+        Arrays.fill(shapeCounts, 0);
+        Arrays.fill(pathCounts, 0);
+        left = top = right = bottom = 0;
+    }
+
+    /** count every shape again, after many were written directly
+     */
+    void recount(ShapeStore s) {
+        reset();
+        for (int i = 0; i < s.size; i++) {
+            added(s, i);
+            if (s.selected[i])
+                selectedArea += area(s, i);
+        }
+        measureBounds(s);
+    }
+
+    /** measure the box around all shapes
+     */
+    void measureBounds(ShapeStore s) {
+        int n = s.size;
+        if (n == 0) {
+            left = top = right = bottom = 0;
+            return;
+        }
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int[] x = s.x, y = s.y, width = s.width;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i] + width[i]);
+            maxY = Math.max(maxY, y[i] + s.height(i));
+        }
+        left = minX;
+        top = minY;
+        right = maxX;
+        bottom = maxY;
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ *  ===============================================================================
+ *  ShapeRenderer.java : The interface of all ways to draw the shapes of a store.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+
+public interface ShapeRenderer {
+
+    /** draw every shape in the store
+     * @param g        the Graphics control
+     * @param s        the store holding the shapes
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    void render(Graphics2D g, ShapeStore s, double alpha);
+}
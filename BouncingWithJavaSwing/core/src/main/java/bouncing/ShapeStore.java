@@ -0,0 +1,509 @@
+/*
+ *  ===============================================================================
+ *  ShapeStore.java : Holds the state of many shapes in parallel primitive arrays.
+ *  Shape i is x[i], y[i], width[i], ... rather than an object of its own, so moving
+ *  every shape streams through a few arrays instead of chasing pointers.
+ *  MovingShape objects are thin views onto one index of a store.
+ *  Each shape also keeps its state as of the last time it was changed from outside
+ *  its path, its origin, so its paths can put it at any later tick directly.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+import java.util.function.*;
+
+public class ShapeStore {
+    public static final int RECTANGLE = 0;	// the shape types, in the order of the shape combo box
+    public static final int SQUARE = 1;
+
+    int size;							// the number of shapes in the store
+    int[] x, y;							// the top left corner of shapes
+    int[] prevX, prevY;					// the top left corner before the last move
+    int[] deltaX, deltaY;				// moving distance of the path
+    int[] width, height;				// width and height of shapes
+    byte[] shapeType, pathType;			// RECTANGLE/SQUARE and MovingPath.FALLING/BOUNCING
+    double[] amplitude, phase;			// the sine wave of a falling path
+    short[] borderColor, fillColor;		// indices into the palette
+    boolean[] selected;					// draw handles if selected
+    int[] selectedIds;					// the indices of the selected shapes, in no order
+    int[] selectedSlot;					// where each shape is in selectedIds plus one, 0 if not selected
+    int selectedCount;					// the number of selected shapes
+    int[] originX, originY;				// the top left corner at the origin
+    int[] originDeltaX, originDeltaY;	// the moving distance at the origin
+    double[] originPhase;				// the phase of a falling path at the origin
+    long[] originTime;					// the tick of the origin
+    long time;							// the number of times the shapes were moved
+    int marginWidth, marginHeight;		// the margin of the animation panel area
+    final ColorPalette palette;
+    final SceneStats stats = new SceneStats();	// kept up to date by every change made through the store
+    SplittableRandom random = new SplittableRandom();	// the stream paths draw their starting state from
+    private MoveKernel kernel = MoveKernel.best();	// moves the shapes on every tick
+
+    /** constructor to create an empty store
+     * @param capacity    the number of shapes to make room for
+     */
+    public ShapeStore(int capacity) {
+        this(capacity, new ColorPalette());
+    }
+
+    /** constructor to create an empty store sharing another store's colours
+     * @param capacity    the number of shapes to make room for
+     * @param palette     the palette the colour indices refer to
+     */
+    public ShapeStore(int capacity, ColorPalette palette) {
+        this.palette = palette;
+        capacity = Math.max(capacity, 1);
+        x = new int[capacity];
+        y = new int[capacity];
+        prevX = new int[capacity];
+        prevY = new int[capacity];
+        deltaX = new int[capacity];
+        deltaY = new int[capacity];
+        width = new int[capacity];
+        height = new int[capacity];
+        shapeType = new byte[capacity];
+        pathType = new byte[capacity];
+        amplitude = new double[capacity];
+        phase = new double[capacity];
+        borderColor = new short[capacity];
+        fillColor = new short[capacity];
+        selected = new boolean[capacity];
+        selectedIds = new int[capacity];
+        selectedSlot = new int[capacity];
+        originX = new int[capacity];
+        originY = new int[capacity];
+        originDeltaX = new int[capacity];
+        originDeltaY = new int[capacity];
+        originPhase = new double[capacity];
+        originTime = new long[capacity];
+    }
+
+    /** make sure the store can hold a number of shapes without growing again
+     * @param capacity    the number of shapes
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length)
+            return;
+        capacity = Math.max(capacity, x.length + (x.length >> 1));
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        deltaX = Arrays.copyOf(deltaX, capacity);
+        deltaY = Arrays.copyOf(deltaY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        shapeType = Arrays.copyOf(shapeType, capacity);
+        pathType = Arrays.copyOf(pathType, capacity);
+        amplitude = Arrays.copyOf(amplitude, capacity);
+        phase = Arrays.copyOf(phase, capacity);
+        borderColor = Arrays.copyOf(borderColor, capacity);
+        fillColor = Arrays.copyOf(fillColor, capacity);
+        selected = Arrays.copyOf(selected, capacity);
+        selectedIds = Arrays.copyOf(selectedIds, capacity);
+        selectedSlot = Arrays.copyOf(selectedSlot, capacity);
+        originX = Arrays.copyOf(originX, capacity);
+        originY = Arrays.copyOf(originY, capacity);
+        originDeltaX = Arrays.copyOf(originDeltaX, capacity);
+        originDeltaY = Arrays.copyOf(originDeltaY, capacity);
+        originPhase = Arrays.copyOf(originPhase, capacity);
+        originTime = Arrays.copyOf(originTime, capacity);
+    }
+
+    /** add a shape to the store
+     * @param type    RECTANGLE or SQUARE
+     * @param x       the x-coordinate of the new shape
+     * @param y       the y-coordinate of the new shape
+     * @param border  the border colour of the new shape
+     * @param fill    the fill colour of the new shape
+     * @param pathType    the path of the new shape
+     * @param w       the width of the shape
+     * @param h       the height of the shape
+     * @return the index of the new shape
+     */
+    public int add(int type, int x, int y, Color border, Color fill, int pathType, int w, int h) {
+        return add(type, x, y, palette.intern(border), palette.intern(fill), pathType, w, h);
+    }
+
+    /** add a shape whose colours are already in the palette
+     * @param border  the palette index of the border colour
+     * @param fill    the palette index of the fill colour
+     * @return the index of the new shape
+     */
+    int add(int type, int x, int y, int border, int fill, int pathType, int w, int h) {
+        ensureCapacity(size + 1);
+        int i = size++;
+        shapeType[i] = (byte) type;
+        this.x[i] = prevX[i] = x;
+        this.y[i] = prevY[i] = y;
+        width[i] = w;
+        height[i] = h;
+        borderColor[i] = (short) border;
+        fillColor[i] = (short) fill;
+        selected[i] = false;
+        if (MovingShape.MovingPath.forId(pathType) != null)
+            this.pathType[i] = (byte) pathType;
+        stats.added(this, i);
+        setPath(i, pathType);
+        return i;
+    }
+
+    /** copy what it takes to draw the shapes into another store
+     *    The path state is not copied, so the copy can be drawn but not moved.
+     * @param target    the store to copy into, using the same palette
+     */
+    public void copyTo(ShapeStore target) {
+        int n = size;
+        target.ensureCapacity(n);
+        System.arraycopy(x, 0, target.x, 0, n);
+        System.arraycopy(y, 0, target.y, 0, n);
+        System.arraycopy(prevX, 0, target.prevX, 0, n);
+        System.arraycopy(prevY, 0, target.prevY, 0, n);
+        System.arraycopy(width, 0, target.width, 0, n);
+        System.arraycopy(height, 0, target.height, 0, n);
+        System.arraycopy(shapeType, 0, target.shapeType, 0, n);
+        System.arraycopy(pathType, 0, target.pathType, 0, n);
+        System.arraycopy(borderColor, 0, target.borderColor, 0, n);
+        System.arraycopy(fillColor, 0, target.fillColor, 0, n);
+        System.arraycopy(selected, 0, target.selected, 0, n);
+        System.arraycopy(selectedSlot, 0, target.selectedSlot, 0, n);
+        System.arraycopy(selectedIds, 0, target.selectedIds, 0, selectedCount);
+        target.selectedCount = selectedCount;
+        stats.copyTo(target.stats);
+        target.size = n;
+        target.marginWidth = marginWidth;
+        target.marginHeight = marginHeight;
+    }
+
+    /** copy what it takes to draw some of the shapes into another store, in the order given
+     *    The path state is not copied, so the copy can be drawn but not moved.
+     * @param target    the store to copy into, using the same palette
+     * @param ids       the indices of the shapes to copy
+     * @param count     the number of indices in ids to use
+     */
+    public void copyTo(ShapeStore target, int[] ids, int count) {
+        target.ensureCapacity(count);
+        for (int k = 0; k < count; k++) {
+            int i = ids[k];
+            target.x[k] = x[i];
+            target.y[k] = y[i];
+            target.prevX[k] = prevX[i];
+            target.prevY[k] = prevY[i];
+            target.width[k] = width[i];
+            target.height[k] = height[i];
+            target.shapeType[k] = shapeType[i];
+            target.pathType[k] = pathType[i];
+            target.borderColor[k] = borderColor[i];
+            target.fillColor[k] = fillColor[i];
+            target.selected[k] = selected[i];
+        }
+        for (int k = count; k < target.size; k++) {	// shapes beyond the new size are never selected
+            target.selected[k] = false;
+            target.selectedSlot[k] = 0;
+        }
+        target.size = count;
+        target.marginWidth = marginWidth;
+        target.marginHeight = marginHeight;
+        target.rebuild();
+    }
+
+    /** remove all shapes
+     */
+    public void clear() {
+        clearSelection();
+        size = 0;
+        stats.reset();
+    }
+
+    /** return the figures about the shapes, kept up to date as they change
+     * @return the stats
+     */
+    public SceneStats stats() { return stats; }
+
+    /** return the number of shapes
+     * @return the number of shapes
+     */
+    public int size() { return size; }
+
+    /** return the width/height of the margin the shapes move within
+     * @return the width/height
+     */
+    public int getMarginWidth() { return marginWidth; }
+
+    public int getMarginHeight() { return marginHeight; }
+
+    /** return the palette the colours of the shapes are interned in
+     * @return the palette
+     */
+    public ColorPalette getPalette() { return palette; }
+
+    /** return a new view of a shape
+     * @param i    the index of the shape
+     * @return a MovingRectangle or MovingSquare backed by this store
+     */
+    public MovingShape shape(int i) {
+        return shapeType[i] == SQUARE ? new MovingSquare(this, i) : new MovingRectangle(this, i);
+    }
+
+    /** return the shape type of a shape
+     * @param i    the index of the shape
+     * @return RECTANGLE or SQUARE
+     */
+    public int shapeType(int i) { return shapeType[i]; }
+
+    /** return the path type of a shape
+     * @param i    the index of the shape
+     * @return MovingShape.MovingPath.FALLING or BOUNCING
+     */
+    public int pathType(int i) { return pathType[i]; }
+
+    /** Return the selected property of a shape.
+     * @param i    the index of the shape
+     * @return the selected property
+     */
+    public boolean isSelected(int i) { return selected[i]; }
+
+    /** Set the selected property of a shape.
+     * @param i    the index of the shape
+     * @param b    the selected value
+     */
+    public void setSelected(int i, boolean b) {
+        if (selected[i] == b)
+            return;
+        selected[i] = b;
+        stats.selectionChanged(this, i, b);
+        if (b) {
+            selectedIds[selectedCount] = i;
+            selectedSlot[i] = ++selectedCount;
+        } else {	// move the last selected shape into the gap
+            int slot = selectedSlot[i] - 1, last = selectedIds[--selectedCount];
+            selectedIds[slot] = last;
+            selectedSlot[last] = slot + 1;
+            selectedSlot[i] = 0;
+        }
+    }
+
+    /** return the number of selected shapes
+     * @return the number of selected shapes
+     */
+    public int selectedCount() { return selectedCount; }
+
+    /** call an action for every selected shape, in no particular order
+     *    The action may change the shapes but not which are selected.
+     * @param action    called with the index of each selected shape
+     */
+    public void forEachSelected(IntConsumer action) {
+        for (int k = 0; k < selectedCount; k++)
+            action.accept(selectedIds[k]);
+    }
+
+    /** select every shape
+     */
+    public void selectAll() {
+        for (int i = 0; i < size; i++) {
+            selected[i] = true;
+            selectedIds[i] = i;
+            selectedSlot[i] = i + 1;
+        }
+        selectedCount = size;
+        stats.selectedAll();
+    }
+
+    /** deselect every shape, in time proportional to the number selected
+     */
+    public void clearSelection() {
+        for (int k = 0; k < selectedCount; k++) {
+            int i = selectedIds[k];
+            selected[i] = false;
+            selectedSlot[i] = 0;
+        }
+        selectedCount = 0;
+        stats.selectedNone();
+    }
+
+    /** select the shapes which are not selected and deselect the others
+     */
+    public void invertSelection() {
+        selectedCount = 0;
+        for (int i = 0; i < size; i++) {
+            boolean b = !selected[i];
+            selected[i] = b;
+            if (b) {
+                selectedIds[selectedCount] = i;
+                selectedSlot[i] = ++selectedCount;
+            } else
+                selectedSlot[i] = 0;
+        }
+        stats.inverted();
+    }
+
+    /** add the shapes which pass a test to the selection
+     * @param test    called with the index of each shape
+     */
+    public void selectWhere(IntPredicate test) {
+        for (int i = 0; i < size; i++) {
+            if (!selected[i] && test.test(i))
+                setSelected(i, true);
+        }
+    }
+
+    /** rebuild the selection index and the stats from the arrays, after they were written directly
+     */
+    void rebuild() {
+        stats.recount(this);
+        selectedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (selected[i]) {
+                selectedIds[selectedCount] = i;
+                selectedSlot[i] = ++selectedCount;
+            } else
+                selectedSlot[i] = 0;
+        }
+    }
+
+    /** Return the height a shape is drawn with; a square is as high as it is wide.
+     * @param i    the index of the shape
+     * @return the height
+     */
+    public int height(int i) { return shapeType[i] == SQUARE ? width[i] : height[i]; }
+
+    /** Set the width of a shape.
+     * @param i    the index of the shape
+     * @param w    the width
+     */
+    public void setWidth(int i, int w) {
+        stats.resizing(this, i);
+        width[i] = w;
+        stats.resized(this, i);
+        rebase(i);
+    }
+
+    /** Set the height of a shape; a square keeps drawing as high as it is wide.
+     * @param i    the index of the shape
+     * @param h    the height
+     */
+    public void setHeight(int i, int h) {
+        stats.resizing(this, i);
+        height[i] = h;
+        stats.resized(this, i);
+        rebase(i);
+    }
+
+    /** Reset the margin for all shapes
+     * @param w     the margin width
+     * @param h     the margin height
+     */
+    public void setMarginSize(int w, int h) {
+        if (w == marginWidth && h == marginHeight)
+            return;
+        marginWidth = w;
+        marginHeight = h;
+        for (int i = 0; i < size; i++)	// the paths run within the new margin from here on
+            rebase(i);
+    }
+
+    /** Set the path of a shape and start it from the beginning.
+     * @param i         the index of the shape
+     * @param pathID    MovingPath.FALLING or MovingPath.BOUNCING
+     */
+    public void setPath(int i, int pathID) {
+        MovingShape.MovingPath path = MovingShape.MovingPath.forId(pathID);
+        if (path != null) {
+            stats.pathChanged(pathType[i], pathID);
+            pathType[i] = (byte) pathID;
+            path.start(this, i);
+            rebase(i);
+        }
+    }
+
+    /** set the stream paths draw their starting state from
+     *    Starting the same paths in the same order from equal streams gives bit-identical shapes.
+     * @param random    the stream, used by the ticking thread only
+     */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /** make the current state of a shape its origin
+     *    Call this after changing a shape other than by moving it along its path.
+     * @param i    the index of the shape
+     */
+    public void rebase(int i) {
+        originX[i] = x[i];
+        originY[i] = y[i];
+        originDeltaX[i] = deltaX[i];
+        originDeltaY[i] = deltaY[i];
+        originPhase[i] = phase[i];
+        originTime[i] = time;
+    }
+
+    /** return the number of times the shapes were moved
+     * @return the current tick
+     */
+    public long time() { return time; }
+
+    /** put every shape where its path has it at a tick, without moving it there step by step
+     *    A shape changed after the tick is put at the state it was changed to.
+     * @param t    the tick to go to
+     */
+    public void seek(long t) {
+        for (int i = 0; i < size; i++) {
+            MovingShape.MovingPath.PATHS[pathType[i]].evaluate(this, i, Math.max(0, t - originTime[i]));
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+        }
+        time = t;
+    }
+
+    /** move every shape by its path
+     */
+    public void move() {
+        move(0, size);
+        time++;
+    }
+
+    /** move the shapes in a range of indices by their paths
+     * @param from    the first index, inclusive
+     * @param to      the last index, exclusive
+     */
+    public void move(int from, int to) {
+        kernel.move(this, from, to);
+    }
+
+    /** move one shape by its path
+     * @param i    the index of the shape
+     */
+    void moveOne(int i) {
+        prevX[i] = x[i];
+        prevY[i] = y[i];
+        MovingShape.MovingPath.PATHS[pathType[i]].move(this, i);
+    }
+
+    /** set how the shapes are moved; every kernel moves them to the same place
+     * @param kernel    MoveKernel.scalar(), or MoveKernel.vector() if there is one
+     */
+    public void setMoveKernel(MoveKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /** return the x-coordinate of a shape between its previous and current position
+     * @param i        the index of the shape
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     * @return the x coordinate to draw at
+     */
+    public int renderX(int i, double alpha) {
+        return (int) Math.round(prevX[i] + (x[i] - prevX[i]) * alpha);
+    }
+
+    /** return the y-coordinate of a shape between its previous and current position
+     * @param i        the index of the shape
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     * @return the y coordinate to draw at
+     */
+    public int renderY(int i, double alpha) {
+        return (int) Math.round(prevY[i] + (y[i] - prevY[i]) * alpha);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *  ===============================================================================
+ *  SnapshotBuffer.java : Hands copies of a ShapeStore from the thread that ticks
+ *  the world to the thread that draws it, without either waiting for the other.
+ *  A triple buffer: the writer fills its back store and swaps it into the middle,
+ *  the reader swaps the middle for its front store when a newer one is there.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.util.concurrent.atomic.*;
+
+public class SnapshotBuffer {
+    private static final int FRESH = 4;	// set on the middle index when the writer put a new store there
+    private final ShapeStore[] stores = new ShapeStore[3];
+    private final AtomicInteger middle = new AtomicInteger(1);	// the index of the store in between, plus FRESH
+    private int back = 0;	// the store the writer fills, only touched by the writer
+    private int front = 2;	// the store the reader draws, only touched by the reader
+
+    /** constructor to create a buffer of empty stores
+     * @param palette    the palette the copied colour indices refer to
+     */
+    public SnapshotBuffer(ColorPalette palette) {
+        for (int k = 0; k < stores.length; k++)
+            stores[k] = new ShapeStore(16, palette);
+    }
+
+    /** copy a store and make the copy the newest snapshot; writer thread only
+     * @param source    the store to copy
+     */
+    public void publish(ShapeStore source) {
+        source.copyTo(stores[back]);
+        back = middle.getAndSet(back | FRESH) & 3;
+    }
+
+    /** return the newest snapshot, which stays unchanged until the next acquire; reader thread only
+     * @return the snapshot
+     */
+    public ShapeStore acquire() {
+        if ((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & 3;
+        return stores[front];
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  ===============================================================================
+ *  SpatialIndex.java : A uniform grid over the animation area for hit-testing.
+ *  Each shape is filed under the cell holding its top left corner, in an intrusive
+ *  doubly linked list per cell, so moving a shape to another cell is O(1).
+ *  Queries look at the cells covering the query area, widened by the largest shape.
+ *  A world too large for MAX_CELLS cells of the given size gets larger cells, so the
+ *  grid never grows with the area of the world beyond that.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.util.*;
+import java.util.function.*;
+
+public class SpatialIndex {
+    public static final int DEFAULT_CELL_SIZE = 64;	// the width and height of a cell in pixels
+    static final int MAX_CELLS = 1 << 20;	// the most cells the grid has, whatever the size of the world
+    private final int cellSize;				// the smallest width and height of a cell
+    private int cell;						// the width and height of a cell for the current margin
+    private int columns, rows;				// the size of the grid
+    private int marginWidth, marginHeight;	// the area the grid was built for
+    private int[] head = new int[0];		// the first shape in each cell, or -1
+    private int[] next = new int[0], prev = new int[0];	// the neighbours of each shape in its cell
+    private int[] cellOf = new int[0];		// the cell of each shape
+    private int count;						// the number of shapes in the index
+    private int maxWidth, maxHeight;		// the largest shape, to widen queries by
+
+    /** constructor to create an index with the default cell size
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /** constructor to create an index
+     * @param cellSize    the width and height of a cell in pixels, unless the world is too large for it
+     */
+    public SpatialIndex(int cellSize) {
+        if (cellSize < 1)
+            throw new IllegalArgumentException("cellSize must be positive");
+        this.cellSize = cellSize;
+        cell = cellSize;
+    }
+
+    /** bring the index up to date with the store
+     *    Only shapes which changed cell are relinked; a new margin or a smaller store rebuilds the grid.
+     * @param s    the store to index
+     */
+    public void update(ShapeStore s) {
+        if (s.marginWidth != marginWidth || s.marginHeight != marginHeight || s.size < count)
+            reset(s);
+        if (cellOf.length < s.size) {
+            int capacity = Math.max(s.size, cellOf.length * 2);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+        }
+        int widest = 0, tallest = 0;
+        for (int i = 0; i < s.size; i++) {
+            int cell = cell(s.x[i], s.y[i]);
+            if (i >= count)
+                link(i, cell);
+            else if (cell != cellOf[i]) {
+                unlink(i);
+                link(i, cell);
+            }
+            widest = Math.max(widest, s.width[i]);
+            tallest = Math.max(tallest, s.height(i));
+        }
+        count = s.size;
+        maxWidth = widest;
+        maxHeight = tallest;
+    }
+
+    private void reset(ShapeStore s) {
+        marginWidth = s.marginWidth;
+        marginHeight = s.marginHeight;
+        long width = Math.max(1, marginWidth), height = Math.max(1, marginHeight);
+        cell = Math.max(cellSize, (int) Math.ceil(Math.sqrt((double) width * height / MAX_CELLS)));
+        while (((width + cell - 1) / cell) * ((height + cell - 1) / cell) > MAX_CELLS)
+            cell++;
+        columns = (int) ((width + cell - 1) / cell);
+        rows = (int) ((height + cell - 1) / cell);
+        head = new int[columns * rows];
+        Arrays.fill(head, -1);
+        count = 0;
+    }
+
+    private int column(int x) {
+        return Math.min(columns - 1, Math.max(0, Math.floorDiv(x, cell)));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, Math.floorDiv(y, cell)));
+    }
+
+    private int cell(int x, int y) {
+        return row(y) * columns + column(x);
+    }
+
+    private void link(int i, int cell) {
+        int first = head[cell];
+        next[i] = first;
+        prev[i] = -1;
+        if (first >= 0)
+            prev[first] = i;
+        head[cell] = i;
+        cellOf[i] = cell;
+    }
+
+    private void unlink(int i) {
+        if (prev[i] >= 0)
+            next[prev[i]] = next[i];
+        else
+            head[cellOf[i]] = next[i];
+        if (next[i] >= 0)
+            prev[next[i]] = prev[i];
+    }
+
+    /** visit every shape which contains a point
+     *    Uses the same bounds as MovingShape.contains.
+     * @param s        the indexed store
+     * @param px       the x-coordinate of the point
+     * @param py       the y-coordinate of the point
+     * @param visitor  receives the index of each shape found
+     */
+    public void queryPoint(ShapeStore s, int px, int py, IntConsumer visitor) {
+        queryRect(s, px, py, px, py, visitor);
+    }
+
+    /** visit every shape which overlaps a rectangle
+     * @param s        the indexed store
+     * @param left     the left edge of the rectangle, inclusive
+     * @param top      the top edge of the rectangle, inclusive
+     * @param right    the right edge of the rectangle, inclusive
+     * @param bottom   the bottom edge of the rectangle, inclusive
+     * @param visitor  receives the index of each shape found
+     */
+    public void queryRect(ShapeStore s, int left, int top, int right, int bottom, IntConsumer visitor) {
+        if (count == 0)
+            return;
+        // a shape is filed by its top left corner, so look up to one shape size further left and up
+        int firstColumn = column(left - maxWidth - 1), lastColumn = column(right);
+        int firstRow = row(top - maxHeight - 1), lastRow = row(bottom);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                for (int i = head[r * columns + c]; i >= 0; i = next[i]) {
+                    int x = s.x[i], y = s.y[i];
+                    if (x <= right && left <= x + s.width[i] + 1 && y <= bottom && top <= y + s.height(i) + 1)
+                        visitor.accept(i);
+                }
+            }
+        }
+    }
+}
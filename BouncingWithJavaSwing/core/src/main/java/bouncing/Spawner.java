@@ -0,0 +1,155 @@
+/*
+ *  ===============================================================================
+ *  Spawner.java : Adds many shapes to a store in one batch.
+ *  Positions come from a distribution over the margin: uniform, a gaussian cluster
+ *  or a grid. Sizes are uniform within a range, and the shape type, path and
+ *  colours are picked at random from the allowed ones.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+public class Spawner {
+    public static final int UNIFORM = 0;	// the position distributions, in the order of NAMES
+    public static final int GAUSSIAN = 1;
+    public static final int GRID = 2;
+    public static final String[] NAMES = { "uniform", "gaussian", "grid" };
+    public static final int MIXED = -1;	// pick the shape type or path of each shape at random
+
+    private int count = 1000;
+    private int distribution = UNIFORM;
+    private int shapeType = MIXED, pathType = MIXED;
+    private int minWidth = 30, maxWidth = 30, minHeight = 50, maxHeight = 50;
+    private Color[] borders = { Color.black }, fills = { Color.white };
+    private double sigma = 0;	// the spread of a gaussian cluster, 0 for an eighth of the margin
+
+    /** set the number of shapes to add
+     * @param n    the number of shapes
+     */
+    public void setCount(int n) { count = Math.max(0, n); }
+
+    /** return the number of shapes to add
+     * @return the number of shapes
+     */
+    public int getCount() { return count; }
+
+    /** set how positions are spread over the margin
+     * @param d    UNIFORM, GAUSSIAN or GRID
+     */
+    public void setDistribution(int d) {
+        if (d < UNIFORM || d > GRID)
+            throw new IllegalArgumentException("unknown distribution " + d);
+        distribution = d;
+    }
+
+    /** set the shape type of the new shapes
+     * @param t    ShapeStore.RECTANGLE, ShapeStore.SQUARE or MIXED
+     */
+    public void setShapeType(int t) { shapeType = t; }
+
+    /** set the path of the new shapes
+     * @param t    MovingShape.MovingPath.FALLING, BOUNCING or MIXED
+     */
+    public void setPathType(int t) { pathType = t; }
+
+    /** set the range widths and heights are drawn from; squares use the width for both
+     * @param minW    the smallest width
+     * @param maxW    the largest width
+     * @param minH    the smallest height
+     * @param maxH    the largest height
+     */
+    public void setSize(int minW, int maxW, int minH, int maxH) {
+        minWidth = Math.max(1, Math.min(minW, maxW));
+        maxWidth = Math.max(1, Math.max(minW, maxW));
+        minHeight = Math.max(1, Math.min(minH, maxH));
+        maxHeight = Math.max(1, Math.max(minH, maxH));
+    }
+
+    /** set the colours picked from
+     * @param borders    the border colours, at least one
+     * @param fills      the fill colours, at least one
+     */
+    public void setColors(Color[] borders, Color[] fills) {
+        if (borders.length == 0 || fills.length == 0)
+            throw new IllegalArgumentException("no colours to pick from");
+        this.borders = borders.clone();
+        this.fills = fills.clone();
+    }
+
+    /** set the spread of a gaussian cluster
+     * @param sigma    the standard deviation in pixels, 0 for an eighth of the margin
+     */
+    public void setSigma(double sigma) { this.sigma = Math.max(0, sigma); }
+
+    /** return n random opaque colours
+     * @param n         the number of colours
+     * @param random    the source of the colours
+     * @return the colours
+     */
+    public static Color[] randomColors(int n, SplittableRandom random) {
+        Color[] colors = new Color[n];
+        for (int k = 0; k < n; k++)
+            colors[k] = new Color(random.nextInt(0x1000000));
+        return colors;
+    }
+
+    /** return the distribution with a name
+     * @param name    one of NAMES
+     * @return UNIFORM, GAUSSIAN or GRID
+     */
+    public static int distributionFor(String name) {
+        int d = Arrays.asList(NAMES).indexOf(name);
+        if (d < 0)
+            throw new IllegalArgumentException("unknown distribution " + name);
+        return d;
+    }
+
+    /** add the shapes to a store, inside its margin
+     * @param s         the store to add to
+     * @param random    the source of positions, sizes, types and colours
+     * @return the index of the first new shape
+     */
+    public int spawn(ShapeStore s, SplittableRandom random) {
+        int first = s.size();
+        s.ensureCapacity(first + count);
+        int marginWidth = s.marginWidth, marginHeight = s.marginHeight;
+        int[] borderIds = new int[borders.length], fillIds = new int[fills.length];
+        for (int k = 0; k < borders.length; k++)
+            borderIds[k] = s.palette.intern(borders[k]);
+        for (int k = 0; k < fills.length; k++)
+            fillIds[k] = s.palette.intern(fills[k]);
+        int cols = 1, rows = 1;
+        if (distribution == GRID) {	// about square cells, as many as there are shapes
+            cols = Math.max(1, (int) Math.ceil(Math.sqrt(count * (double) Math.max(1, marginWidth) / Math.max(1, marginHeight))));
+            rows = Math.max(1, (count + cols - 1) / cols);
+        }
+        double spread = sigma > 0 ? sigma : Math.min(marginWidth, marginHeight) / 8.0;
+        for (int k = 0; k < count; k++) {
+            int type = shapeType == MIXED ? random.nextInt(2) : shapeType;
+            int path = pathType == MIXED ? random.nextInt(MovingShape.MovingPath.PATHS.length) : pathType;
+            int w = minWidth + random.nextInt(maxWidth - minWidth + 1);
+            int h = type == ShapeStore.SQUARE ? w : minHeight + random.nextInt(maxHeight - minHeight + 1);
+            int x, y;
+            switch (distribution) {
+                case GAUSSIAN:
+                    x = (int) Math.round(marginWidth / 2.0 + random.nextGaussian() * spread) - w / 2;
+                    y = (int) Math.round(marginHeight / 2.0 + random.nextGaussian() * spread) - h / 2;
+                    break;
+                case GRID:	// centred in the cell
+                    x = (int) ((k % cols + 0.5) * marginWidth / cols) - w / 2;
+                    y = (int) ((k / cols + 0.5) * marginHeight / rows) - h / 2;
+                    break;
+                default:
+                    x = random.nextInt(Math.max(1, marginWidth - w));
+                    y = random.nextInt(Math.max(1, marginHeight - h));
+            }
+            x = Math.max(0, Math.min(x, marginWidth - w));
+            y = Math.max(0, Math.min(y, marginHeight - h));
+            s.add(type, x, y, borderIds[random.nextInt(borderIds.length)], fillIds[random.nextInt(fillIds.length)], path, w, h);
+        }
+        return first;
+    }
+}
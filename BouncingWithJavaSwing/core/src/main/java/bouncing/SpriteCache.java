@@ -0,0 +1,113 @@
+/*
+ *  ===============================================================================
+ *  SpriteCache.java : Holds images of shapes, drawn once and copied many times.
+ *  Sprites are looked up by a long key and kept within a budget of bytes; when a
+ *  new sprite would go over it, the least recently used sprites are dropped.
+ *  Counts hits, misses and evictions so the budget can be tuned.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+public class SpriteCache {
+    public static final long DEFAULT_BUDGET = 64L << 20;	// bytes of sprites kept by default
+    private final long budget;
+    private long bytes = 0;		// the size of the sprites held
+    private long hits = 0, misses = 0, evictions = 0;
+    private final LinkedHashMap<Long, Image> sprites = new LinkedHashMap<Long, Image>(256, 0.75f, true);	// in order of last use
+
+    /** constructor to create a cache with the default budget
+     */
+    public SpriteCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /** constructor to create a cache
+     * @param budget    the most bytes of sprites to hold
+     */
+    public SpriteCache(long budget) {
+        this.budget = budget;
+    }
+
+    /** return a sprite, counting a hit or a miss
+     * @param key    the key the sprite was put with
+     * @return the sprite, or null if it is not held
+     */
+    public Image get(long key) {
+        Image sprite = sprites.get(key);
+        if (sprite != null)
+            hits++;
+        else
+            misses++;
+        return sprite;
+    }
+
+    /** hold a sprite, dropping the least recently used ones to stay within the budget
+     * @param key       the key to look the sprite up by
+     * @param sprite    the image
+     * @return false if the sprite alone is over the budget and was not held
+     */
+    public boolean put(long key, Image sprite) {
+        long size = sizeOf(sprite);
+        if (size > budget)
+            return false;
+        Image old = sprites.put(key, sprite);
+        if (old != null)
+            bytes -= sizeOf(old);
+        bytes += size;
+        for (Iterator<Image> it = sprites.values().iterator(); bytes > budget && it.hasNext(); ) {
+            Image eldest = it.next();
+            if (eldest == sprite)
+                continue;
+            bytes -= sizeOf(eldest);
+            eldest.flush();
+            it.remove();
+            evictions++;
+        }
+        return true;
+    }
+
+    /** drop every sprite, e.g. because they were drawn for another screen
+     */
+    public void clear() {
+        for (Image sprite: sprites.values())
+            sprite.flush();
+        sprites.clear();
+        bytes = 0;
+    }
+
+    /** return whether a sprite of a size could be held at all, to check before drawing one
+     * @param width     the width of the sprite in pixels
+     * @param height    the height of the sprite in pixels
+     * @return false if the sprite alone would be over the budget
+     */
+    public boolean fits(int width, int height) {
+        return 4L * width * height <= budget;
+    }
+
+    private static long sizeOf(Image sprite) {
+        return 4L * sprite.getWidth(null) * sprite.getHeight(null);
+    }
+
+    /** return the number of sprites held
+     * @return the number of sprites
+     */
+    public int size() { return sprites.size(); }
+
+    /** return the bytes of sprites held
+     * @return the bytes, counting 4 per pixel
+     */
+    public long getBytes() { return bytes; }
+
+    /** return the number of lookups which found/did not find a sprite, and the number of sprites dropped
+     * @return the count since the cache was created
+     */
+    public long getHits() { return hits; }
+
+    public long getMisses() { return misses; }
+
+    public long getEvictions() { return evictions; }
+}
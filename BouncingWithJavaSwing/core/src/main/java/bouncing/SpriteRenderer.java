@@ -0,0 +1,81 @@
+/*
+ *  ===============================================================================
+ *  SpriteRenderer.java : Draws each shape by copying an image of it from a
+ *  SpriteCache. The image is drawn once, with the shape's own draw method, for
+ *  each combination of shape type, size, colours and selection, so scenes where
+ *  many shapes look alike cost one image copy per shape.
+ *  Shapes whose sprite would not fit in the cache are drawn directly, as is every
+ *  shape through a Graphics which scales, since a sprite is drawn pixel for pixel.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.geom.*;
+
+public class SpriteRenderer implements ShapeRenderer {
+    private static final int MARGIN = 2;	// how far the handles stick out of a shape
+    private static final int LIMIT = 1 << 15;	// sizes and colour indices must fit in 15 bits of the key
+    private final SpriteCache cache;
+    private GraphicsConfiguration config = null;	// the screen the sprites were made for
+    private ColorPalette palette = null;	// the palette the keys' colour indices refer to
+
+    /** constructor to create a renderer with a cache of the default budget
+     */
+    public SpriteRenderer() {
+        this(new SpriteCache());
+    }
+
+    /** constructor to create a renderer
+     * @param cache    the cache of sprites
+     */
+    public SpriteRenderer(SpriteCache cache) {
+        this.cache = cache;
+    }
+
+    /** return the cache, for its counters
+     * @return the cache
+     */
+    public SpriteCache getCache() { return cache; }
+
+    /** draw every shape in the store
+     * @param g        the Graphics control
+     * @param s        the store holding the shapes
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    public void render(Graphics2D g, ShapeStore s, double alpha) {
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        if (gc != config || s.palette != palette) {
+            cache.clear();
+            config = gc;
+            palette = s.palette;
+        }
+        boolean scaled = (g.getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) != 0;	// a sprite would blur
+        // one reusable view per shape type, indexed by the shape type
+        MovingShape[] views = { new MovingRectangle(s, 0), new MovingSquare(s, 0) };
+        for (int i = 0; i < s.size(); i++) {
+            int x = s.renderX(i, alpha), y = s.renderY(i, alpha);
+            MovingShape view = views[s.shapeType[i]].at(i);
+            int w = s.width[i], h = s.height(i);
+            if (scaled || w < 0 || h < 0 || w >= LIMIT - 2 * MARGIN || h >= LIMIT - 2 * MARGIN
+                    || !cache.fits(w + 2 * MARGIN + 1, h + 2 * MARGIN + 1)	// too big to key or to hold
+                    || s.selected[i] && s.height[i] != h) {	// handles not at the drawn corners
+                view.draw(g, x, y);
+                continue;
+            }
+            long key = (long) s.shapeType[i] << 62 | (s.selected[i] ? 1L << 61 : 0)
+                | (long) w << 46 | (long) h << 31 | (long) s.fillColor[i] << 16 | (long) s.borderColor[i] << 1;
+            Image sprite = cache.get(key);
+            if (sprite == null) {
+                sprite = gc.createCompatibleImage(w + 2 * MARGIN + 1, h + 2 * MARGIN + 1, Transparency.TRANSLUCENT);
+                Graphics2D sg = (Graphics2D) sprite.getGraphics();
+                sg.setRenderingHints(g.getRenderingHints());
+                view.draw(sg, MARGIN, MARGIN);
+                sg.dispose();
+                cache.put(key, sprite);
+            }
+            g.drawImage(sprite, x - MARGIN, y - MARGIN, null);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *  ===============================================================================
+ *  TickClock.java : Says when fixed steps of a simulation are due.
+ *  Tick k is due at an absolute time start + k * period, so the rate does not drift
+ *  with how long ticks, painting or waking up take. When the caller falls behind it
+ *  catches up to a limit and then skips, keeping the phase of later ticks.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+public class TickClock {
+    private long period;	// the time between ticks in ns
+    private long last;		// when the last tick run was due
+    private long next;		// when the next tick is due
+
+    /** constructor to create a clock whose first tick is due one period from now
+     * @param periodNanos    the time between ticks in ns
+     */
+    public TickClock(long periodNanos) {
+        period = Math.max(1, periodNanos);
+        reset(System.nanoTime());
+    }
+
+    /** start counting again, so no ticks are owed for the time before
+     * @param now    the current System.nanoTime()
+     */
+    public void reset(long now) {
+        last = now;
+        next = now + period;
+    }
+
+    /** change the time between ticks, starting from the last tick
+     * @param periodNanos    the new time between ticks in ns
+     */
+    public void setPeriod(long periodNanos) {
+        periodNanos = Math.max(1, periodNanos);
+        if (periodNanos == period)
+            return;
+        period = periodNanos;
+        next = last + period;
+    }
+
+    /** return the number of ticks due by now and count them as run
+     * @param now    the current System.nanoTime()
+     * @param max    the most ticks to run at once; any more are skipped
+     * @return the number of ticks to run
+     */
+    public int due(long now, int max) {
+        if (now < next)
+            return 0;
+        long owed = (now - last) / period;
+        if (owed > max) {	// too far behind to catch up, skip the rest
+            last = now - (now - last) % period;
+            owed = max;
+        } else
+            last += owed * period;
+        next = last + period;
+        return (int) owed;
+    }
+
+    /** return how far time has got from the last tick to the next
+     * @param now    the current System.nanoTime()
+     * @return a fraction from 0 to 1
+     */
+    public double alpha(long now) {
+        return Math.min(1, (double) (now - last) / period);
+    }
+
+    /** return when the next tick is due
+     * @return the System.nanoTime() of the next tick
+     */
+    public long next() { return next; }
+}
@@ -0,0 +1,309 @@
+/*
+ *  ===============================================================================
+ *  TileRenderer.java : Draws the shapes in software, straight into the pixels of
+ *  an image, on several cores, and blits the image once.
+ *  The area being painted is cut into square tiles. Each shape is binned into
+ *  the tiles it touches, in store order, and every tile then draws its own
+ *  shapes on a ForkJoinPool, so no two threads write the same pixel.
+ *  The image is in device pixels. Through a Graphics which scales and translates,
+ *  as the panel's camera does, fills cover the device pixels whose centres they
+ *  cover, as fillRect does, and borders the pixels a normalised one unit stroke
+ *  covers, as drawRect does, so the image is never larger than the area on screen
+ *  and zooming in stays sharp.
+ *  The fills, borders and handles cover exactly the pixels fillRect and
+ *  drawRect cover in MovingShape.draw, so the output matches PerShapeRenderer
+ *  pixel for pixel at a scale of 1 for opaque colours.
+ *  Close a renderer once it is replaced, so its worker threads stop.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class TileRenderer implements ShapeRenderer, AutoCloseable {
+    public static final int TILE = 64;	// the width and height of a tile, in pixels
+    private static final int HANDLE = 2;	// how far the handles reach out of a shape
+    private final ForkJoinPool pool;		// the worker threads
+    private Color background = Color.white;
+    private BufferedImage image;			// the frame, reused while it is large enough
+    private int[] pixels;					// the pixels of image, one int per pixel
+    private int[] drawX = new int[0], drawY = new int[0];	// the interpolated position of each shape
+    private int[] colSpan = new int[0], rowSpan = new int[0];	// the first and last tile column and row of each shape
+    private int[] start = new int[0];		// where each tile's shapes start in binned
+    private int[] binned = new int[0];		// shape indices grouped by tile, in store order within a tile
+    private int[] rgb = new int[0];			// the palette as RGB values
+
+    /** constructor to create a renderer using all cores
+     */
+    public TileRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** constructor to create a renderer
+     * @param parallelism    the number of worker threads
+     */
+    public TileRenderer(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive");
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /** set the colour the area is cleared to before the shapes are drawn
+     * @param background    the colour
+     */
+    public void setBackground(Color background) {
+        this.background = background;
+    }
+
+    /** stop the worker threads; the renderer must not draw after this
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    /** draw every shape in the store over the clip of g, or over the margin if g is not clipped
+     * @param g        the Graphics control, which may scale and translate but not rotate
+     * @param s        the store holding the shapes
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    public void render(Graphics2D g, ShapeStore s, double alpha) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, s.marginWidth, s.marginHeight);
+        AffineTransform t = g.getTransform();
+        double sx = t.getScaleX(), sy = t.getScaleY(), tx = t.getTranslateX(), ty = t.getTranslateY();
+        int left = device(clip.x, sx, tx), top = device(clip.y, sy, ty);
+        Rectangle area = new Rectangle(left, top, device(clip.x + clip.width, sx, tx) - left, device(clip.y + clip.height, sy, ty) - top);
+        if (area.isEmpty())
+            return;
+        if (image == null || image.getWidth() < area.width || image.getHeight() < area.height) {
+            image = new BufferedImage(Math.max(area.width, image == null ? 0 : image.getWidth()),
+                Math.max(area.height, image == null ? 0 : image.getHeight()), BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        int colors = s.palette.size();
+        if (rgb.length < colors)
+            rgb = new int[colors];
+        for (int c = 0; c < colors; c++)
+            rgb[c] = s.palette.color(c).getRGB();
+
+        Frame frame = new Frame(s, area, sx, sy, tx, ty);
+        bin(s, frame, alpha);
+        if (frame.tiles == 1 || pool.getParallelism() == 1)
+            frame.draw(0, frame.tiles);
+        else
+            pool.invoke(new TileTask(frame, 0, frame.tiles));
+        Graphics2D d = (Graphics2D) g.create();
+        try {
+            d.setTransform(new AffineTransform());	// the image is in device pixels already
+            d.drawImage(image, area.x, area.y, area.x + area.width, area.y + area.height, 0, 0, area.width, area.height, null);
+        } finally {
+            d.dispose();
+        }
+    }
+
+    /** return the first/last device pixel, exclusive, a one unit stroke along a coordinate covers
+     *    The stroke is normalised as Java2D does by default, onto a quarter past a pixel, and is
+     *    one pixel wide while it is no wider than that.
+     * @param v        the coordinate
+     * @param scale    the device pixels per unit
+     * @param shift    the device position of 0
+     * @return the device pixel
+     */
+    private static int lineFrom(double v, double scale, double shift) {
+        double p = Math.floor(v * scale + shift + 0.25) + 0.25;
+        return scale <= 1 ? (int) Math.floor(p) : (int) Math.ceil(p - scale / 2 - 0.5);
+    }
+
+    private static int lineTo(double v, double scale, double shift) {
+        double p = Math.floor(v * scale + shift + 0.25) + 0.25;
+        return scale <= 1 ? (int) Math.floor(p) + 1 : (int) Math.ceil(p + scale / 2 - 0.5);
+    }
+
+    /** return the first device pixel whose centre is at or past a coordinate
+     * @param v        the coordinate
+     * @param scale    the device pixels per unit
+     * @param shift    the device position of 0
+     * @return the device pixel
+     */
+    private static int device(double v, double scale, double shift) {
+        return (int) Math.ceil(v * scale + shift - 0.5);
+    }
+
+    /** work out the position of every shape and group the shapes by the tiles they touch
+     * @param s        the store holding the shapes
+     * @param f        the frame being drawn
+     * @param alpha    the fraction of a tick elapsed since the last move (0 to 1)
+     */
+    private void bin(ShapeStore s, Frame f, double alpha) {
+        int n = s.size();
+        if (drawX.length < n) {
+            drawX = new int[n];
+            drawY = new int[n];
+            colSpan = new int[n];
+            rowSpan = new int[n];
+        }
+        if (start.length < f.tiles + 1)
+            start = new int[f.tiles + 1];
+        Arrays.fill(start, 0, f.tiles + 1, 0);
+        int right = f.left + f.width, bottom = f.top + f.height;
+        for (int i = 0; i < n; i++) {
+            int x = drawX[i] = s.renderX(i, alpha), y = drawY[i] = s.renderY(i, alpha);
+            // everything drawn for a shape: border to x + width, handles a little past the corners of the raw height,
+            // in device pixels, with a pixel more for a border kept a pixel thick
+            int x0 = f.x(x - HANDLE), x1 = f.x(x + Math.max(s.width[i] + HANDLE - 1, 0) + 1);
+            int y0 = f.y(y - HANDLE), y1 = f.y(y + Math.max(Math.max(s.height(i), s.height[i] + HANDLE - 1), 0) + 1);
+            if (x1 < f.left || x0 >= right || y1 < f.top || y0 >= bottom) {
+                colSpan[i] = -1;
+                continue;
+            }
+            int c0 = Math.max(0, (x0 - f.left) / TILE), c1 = Math.min(f.cols - 1, (x1 - f.left) / TILE);
+            int r0 = Math.max(0, (y0 - f.top) / TILE), r1 = Math.min(f.rows - 1, (y1 - f.top) / TILE);
+            colSpan[i] = c0 << 16 | c1;
+            rowSpan[i] = r0 << 16 | r1;
+            for (int r = r0; r <= r1; r++)
+                for (int c = c0; c <= c1; c++)
+                    start[r * f.cols + c + 1]++;
+        }
+        for (int t = 0; t < f.tiles; t++)
+            start[t + 1] += start[t];
+        if (binned.length < start[f.tiles])
+            binned = new int[start[f.tiles]];
+        int[] next = Arrays.copyOf(start, f.tiles);
+        for (int i = 0; i < n; i++) {
+            if (colSpan[i] < 0)
+                continue;
+            int c0 = colSpan[i] >>> 16, c1 = colSpan[i] & 0xFFFF, r0 = rowSpan[i] >>> 16, r1 = rowSpan[i] & 0xFFFF;
+            for (int r = r0; r <= r1; r++)
+                for (int c = c0; c <= c1; c++)
+                    binned[next[r * f.cols + c]++] = i;
+        }
+    }
+
+    /*
+     *  ===============================================================================
+     *  Frame : The area of one render call, cut into tiles, and the drawing of
+     *  its tiles into the pixels of the image.
+     *  ===============================================================================
+     */
+    private class Frame {
+        final ShapeStore s;
+        final int left, top, width, height;	// the area being drawn, in device pixels
+        final double sx, sy, tx, ty;		// the scale and translation from the store to device pixels
+        final int cols, rows, tiles;
+        final int stride = image.getWidth();
+
+        Frame(ShapeStore s, Rectangle area, double sx, double sy, double tx, double ty) {
+            this.s = s;
+            this.sx = sx;
+            this.sy = sy;
+            this.tx = tx;
+            this.ty = ty;
+            left = area.x;
+            top = area.y;
+            width = area.width;
+            height = area.height;
+            cols = (width + TILE - 1) / TILE;
+            rows = (height + TILE - 1) / TILE;
+            tiles = cols * rows;
+        }
+
+        /** clear a range of tiles and draw their shapes in store order
+         * @param from    the first tile
+         * @param to      the tile after the last
+         */
+        void draw(int from, int to) {
+            int back = background.getRGB();
+            for (int t = from; t < to; t++) {
+                int tx0 = left + (t % cols) * TILE, ty0 = top + (t / cols) * TILE;
+                int tx1 = Math.min(tx0 + TILE, left + width), ty1 = Math.min(ty0 + TILE, top + height);
+                fill(tx0, ty0, tx1, ty1, back, tx0, ty0, tx1, ty1);
+                for (int k = start[t]; k < start[t + 1]; k++) {
+                    int i = binned[k];
+                    int x = drawX[i], y = drawY[i], w = s.width[i], h = s.height(i);
+                    // fillRect(x, y, w, h)
+                    rect(x, y, x + w, y + h, rgb[s.fillColor[i]], tx0, ty0, tx1, ty1);
+                    // drawRect(x, y, w, h): the stroke along the edges of [x, x + w] by [y, y + h]
+                    if (w >= 0 && h >= 0) {
+                        int border = rgb[s.borderColor[i]];
+                        int left = lineFrom(x, sx, tx), right = lineTo(x + w, sx, tx);
+                        int top = lineFrom(y, sy, ty), bottom = lineTo(y + h, sy, ty);
+                        fill(left, top, right, lineTo(y, sy, ty), border, tx0, ty0, tx1, ty1);
+                        fill(left, lineFrom(y + h, sy, ty), right, bottom, border, tx0, ty0, tx1, ty1);
+                        fill(left, top, lineTo(x, sx, tx), bottom, border, tx0, ty0, tx1, ty1);
+                        fill(lineFrom(x + w, sx, tx), top, right, bottom, border, tx0, ty0, tx1, ty1);
+                    }
+                    // drawHandles, at the corners of the raw width and height as in MovingShape
+                    if (s.selected[i]) {
+                        int rh = s.height[i], black = 0xFF000000;
+                        rect(x - HANDLE, y - HANDLE, x + HANDLE, y + HANDLE, black, tx0, ty0, tx1, ty1);
+                        rect(x + w - HANDLE, y + rh - HANDLE, x + w + HANDLE, y + rh + HANDLE, black, tx0, ty0, tx1, ty1);
+                        rect(x - HANDLE, y + rh - HANDLE, x + HANDLE, y + rh + HANDLE, black, tx0, ty0, tx1, ty1);
+                        rect(x + w - HANDLE, y - HANDLE, x + w + HANDLE, y + HANDLE, black, tx0, ty0, tx1, ty1);
+                    }
+                }
+            }
+        }
+
+        /** return the device pixel column/row at a store x/y-coordinate
+         */
+        int x(int v) { return device(v, sx, tx); }
+
+        int y(int v) { return device(v, sy, ty); }
+
+        /** set the device pixels of [x0, x1) by [y0, y1) in the store which fall inside a tile
+         * @param color    the RGB colour
+         * @param tx0      the left of the tile in device pixels; tx1, ty0 and ty1 bound the rest
+         */
+        private void rect(int x0, int y0, int x1, int y1, int color, int tx0, int ty0, int tx1, int ty1) {
+            fill(x(x0), y(y0), x(x1), y(y1), color, tx0, ty0, tx1, ty1);
+        }
+
+        /** set the pixels of [x0, x1) by [y0, y1) which fall inside a tile
+         * @param color    the RGB colour
+         * @param tx0      the left of the tile; tx1, ty0 and ty1 bound the rest
+         */
+        private void fill(int x0, int y0, int x1, int y1, int color, int tx0, int ty0, int tx1, int ty1) {
+            x0 = Math.max(x0, tx0);
+            y0 = Math.max(y0, ty0);
+            x1 = Math.min(x1, tx1);
+            y1 = Math.min(y1, ty1);
+            if (x0 >= x1)
+                return;
+            for (int y = y0; y < y1; y++) {
+                int row = (y - top) * stride - left;
+                Arrays.fill(pixels, row + x0, row + x1, color);
+            }
+        }
+    }
+
+    /*
+     *  ===============================================================================
+     *  TileTask : Draws a range of tiles, splitting it in half while it is large.
+     *  ===============================================================================
+     */
+    private static class TileTask extends RecursiveAction {
+        private final Frame frame;
+        private final int from, to;
+
+        TileTask(Frame frame, int from, int to) {
+            this.frame = frame;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= 1) {
+                frame.draw(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(frame, from, middle), new TileTask(frame, middle, to));
+            }
+        }
+    }
+}
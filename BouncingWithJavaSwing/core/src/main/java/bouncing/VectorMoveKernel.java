@@ -0,0 +1,166 @@
+/*
+ *  ===============================================================================
+ *  VectorMoveKernel.java : Moves shapes several at a time with jdk.incubator.vector.
+ *  The shapes stay where they are in the store, since their index is who they
+ *  are. Each run of lanes is masked by path type instead, and a path's kernel is
+ *  skipped for a run holding none of its shapes. The falling kernel repeats
+ *  FastTrig and FallingPath.move step by step, the bouncing kernel reflects
+ *  off the margin lane by lane as BouncingPath.move does, so both give the same
+ *  bits as the scalar kernel. Shapes on any other path, and the shapes left at
+ *  the end of a range, are moved one by one.
+ *  Only loaded by MoveKernel when the vector module is present.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import jdk.incubator.vector.*;
+
+final class VectorMoveKernel extends MoveKernel {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> W = VectorSpecies.of(int.class, D.vectorShape());	// twice the lanes of D
+    private static final VectorShuffle<Integer> EVEN;	// the even lanes of two vectors, one after the other
+    private static final int FALLING = MovingShape.MovingPath.FALLING, BOUNCING = MovingShape.MovingPath.BOUNCING;
+    static {
+        int n = W.length();
+        int[] lanes = new int[n];
+        for (int j = 0; j < n; j++)
+            lanes[j] = j < n / 2 ? 2 * j : 2 * j - 2 * n;	// below 0 picks lane 2 * j - n of the second vector
+        EVEN = VectorShuffle.fromArray(W, lanes, 0);
+    }
+
+    // Only whole vectors are loaded and stored, blending in what changed: masked stores,
+    // mask casts and double to int conversions are far slower than that on JDK 17.
+    // A run whose shapes are all on one path needs no masks at all. The calls are kept
+    // shallow, since the vector operations are only compiled to instructions when C2
+    // inlines all the way down to them.
+    void move(ShapeStore s, int from, int to) {
+        int lanes = W.length(), end = from + W.loopBound(to - from);
+        boolean[] falling = new boolean[lanes], bouncing = new boolean[lanes];	// the path of each lane of a run
+        int i = from;
+        for (; i < end; i += lanes) {
+            int fallers = 0, bouncers = 0;
+            for (int l = 0; l < lanes; l++) {
+                int p = s.pathType[i + l];
+                falling[l] = p == FALLING;
+                bouncing[l] = p == BOUNCING;
+                if (falling[l])
+                    fallers++;
+                else if (bouncing[l])
+                    bouncers++;
+                else	// moved here and stored back as it is below
+                    s.moveOne(i + l);
+            }
+            IntVector x = IntVector.fromArray(W, s.x, i), y = IntVector.fromArray(W, s.y, i);
+            IntVector prevX = x, prevY = y, newX = x, newY = y;
+            if (fallers + bouncers < lanes) {
+                VectorMask<Integer> known = VectorMask.fromArray(W, falling, 0).or(VectorMask.fromArray(W, bouncing, 0));
+                prevX = IntVector.fromArray(W, s.prevX, i).blend(x, known);
+                prevY = IntVector.fromArray(W, s.prevY, i).blend(y, known);
+            }
+            if (fallers > 0) {
+                IntVector fy = y.add(IntVector.fromArray(W, s.deltaY, i));
+                VectorMask<Integer> wrap = fy.compare(VectorOperators.GT, s.marginHeight);	// start again from the top
+                if (fallers == lanes) {
+                    newX = fallX(s, i, null);
+                    newY = fy;
+                } else {
+                    VectorMask<Integer> m = VectorMask.fromArray(W, falling, 0);
+                    newX = newX.blend(fallX(s, i, falling), m);
+                    newY = newY.blend(fy, m);
+                    wrap = wrap.and(m);
+                }
+                newY = newY.blend(0, wrap);
+                prevY = prevY.blend(0, wrap);	// don't interpolate across the jump
+            }
+            if (bouncers > 0) {
+                VectorMask<Integer> m = bouncers == lanes ? null : VectorMask.fromArray(W, bouncing, 0);
+                IntVector bx = reflect(x, s.deltaX, IntVector.fromArray(W, s.width, i), s.marginWidth, i, m);
+                IntVector by = reflect(y, s.deltaY, IntVector.fromArray(W, s.height, i), s.marginHeight, i, m);
+                newX = m == null ? bx : newX.blend(bx, m);
+                newY = m == null ? by : newY.blend(by, m);
+            }
+            newX.intoArray(s.x, i);
+            newY.intoArray(s.y, i);
+            prevX.intoArray(s.prevX, i);
+            prevY.intoArray(s.prevY, i);
+        }
+        for (; i < to; i++)
+            s.moveOne(i);
+    }
+
+    public String toString() { return "vector (" + D.length() + " doubles)"; }
+
+    /** advance the phase of the falling shapes of a run and return their x-coordinates, as FallingPath.move
+     * @param s          the store holding the shapes
+     * @param i          the first index of the run
+     * @param falling    whether each lane holds a falling shape, or null if they all do
+     * @return the x-coordinates, of the falling lanes only
+     */
+    private static IntVector fallX(ShapeStore s, int i, boolean[] falling) {
+        IntVector low = swingX(s, i, falling, 0), high = swingX(s, i + D.length(), falling, D.length());
+        return low.rearrange(EVEN, high).add(IntVector.fromArray(W, s.originX, i));
+    }
+
+    /** advance the phase of the falling shapes of a double vector of lanes and return how far they swing
+     * @param s          the store holding the shapes
+     * @param i          the first index of the lanes
+     * @param falling    whether each lane of the run holds a falling shape, or null if they all do
+     * @param lane       the lane of the run the double vector starts at
+     * @return the swing from the origin rounded as FastTrig.round, in the even int lanes
+     */
+    private static IntVector swingX(ShapeStore s, int i, boolean[] falling, int lane) {
+        DoubleVector old = DoubleVector.fromArray(D, s.phase, i);
+        DoubleVector phase = old.add(MovingShape.FallingPath.STEP);
+        (falling == null ? phase : old.blend(phase, VectorMask.fromArray(D, falling, lane))).intoArray(s.phase, i);
+        // FallingPath.swing at the phase and at the origin
+        DoubleVector now = cos(phase.add(MovingShape.FallingPath.STEP / 2)).neg().mul(MovingShape.FallingPath.SWING);
+        DoubleVector origin = cos(DoubleVector.fromArray(D, s.originPhase, i).add(MovingShape.FallingPath.STEP / 2))
+            .neg().mul(MovingShape.FallingPath.SWING);
+        DoubleVector t = DoubleVector.fromArray(D, s.amplitude, i).mul(now.sub(origin)).add(0.5);
+        DoubleVector r = t.add(FastTrig.MAGIC).sub(FastTrig.MAGIC);
+        r = r.blend(r.sub(1), r.compare(VectorOperators.GT, t));	// floor(t)
+        // a whole number plus MAGIC holds the number in its low 32 bits, so no conversion is needed
+        return r.add(FastTrig.MAGIC).reinterpretAsInts();
+    }
+
+    /** move along one axis, turning at a side the shape is heading past, as BouncingPath.move
+     * @param p         the positions
+     * @param delta     the moving distances of the store, turned in place
+     * @param size      the sizes of the shapes along the axis
+     * @param margin    the size of the margin along the axis
+     * @param i         the first index of the run
+     * @param m         the lanes holding bouncing shapes, or null for all of them
+     * @return the new positions, of the bouncing lanes only
+     */
+    private static IntVector reflect(IntVector p, int[] delta, IntVector size, int margin, int i, VectorMask<Integer> m) {
+        IntVector d = IntVector.fromArray(W, delta, i);
+        p = p.add(d);
+        VectorMask<Integer> low = p.compare(VectorOperators.LT, 0).and(d.compare(VectorOperators.LT, 0));
+        VectorMask<Integer> high = p.add(size).compare(VectorOperators.GT, margin).and(d.compare(VectorOperators.GT, 0)).andNot(low);
+        VectorMask<Integer> turn = low.or(high);
+        d.blend(d.neg(), m == null ? turn : turn.and(m)).intoArray(delta, i);
+        return p.blend(0, low).blend(size.neg().add(margin), high);
+    }
+
+    /** FastTrig.cos, lane by lane; the quarter turn is worked out in doubles, which picks the same result
+     */
+    private static DoubleVector cos(DoubleVector a) {
+        DoubleVector k = a.mul(FastTrig.TWO_OVER_PI).add(FastTrig.MAGIC).sub(FastTrig.MAGIC);
+        DoubleVector r = a.sub(k.mul(FastTrig.PIO2_HI)).sub(k.mul(FastTrig.PIO2_LO));
+        DoubleVector z = r.mul(r);
+        DoubleVector ps = z.mul(FastTrig.S6).add(FastTrig.S5).mul(z).add(FastTrig.S4).mul(z).add(FastTrig.S3)
+            .mul(z).add(FastTrig.S2).mul(z).add(FastTrig.S1);
+        DoubleVector sin = r.add(r.mul(z).mul(ps));
+        DoubleVector pc = z.mul(FastTrig.C6).add(FastTrig.C5).mul(z).add(FastTrig.C4).mul(z).add(FastTrig.C3)
+            .mul(z).add(FastTrig.C2).mul(z).add(FastTrig.C1);
+        DoubleVector cos = DoubleVector.broadcast(D, 1).sub(z.mul(0.5)).add(z.mul(z).mul(pc));
+        DoubleVector f = k.mul(0.25).add(FastTrig.MAGIC).sub(FastTrig.MAGIC);
+        f = f.blend(f.sub(1), f.compare(VectorOperators.GT, k.mul(0.25)));	// floor(k / 4)
+        DoubleVector q = k.sub(f.mul(4));	// the quarter turn, 0 to 3
+        VectorMask<Double> odd = q.compare(VectorOperators.EQ, 1).or(q.compare(VectorOperators.EQ, 3));
+        VectorMask<Double> negative = q.compare(VectorOperators.EQ, 1).or(q.compare(VectorOperators.EQ, 2));
+        DoubleVector v = cos.blend(sin, odd);
+        return v.blend(v.neg(), negative);
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *  ===============================================================================
+ *  World.java : The simulation without any user interface.
+ *  A world has a size, the shapes moving inside it, and the helpers run on every
+ *  tick: the optional parallel mover and collision detector, and the spatial index.
+ *  A run can be recorded to a log and played back in place of moving the shapes.
+ *  AnimationPanel shows a world on screen; HeadlessMain runs one on its own.
+ *  All randomness comes from one seeded stream per world, split into a stream
+ *  for starting paths and one for every batch of shapes added, so two worlds
+ *  with the same seed and the same changes move bit for bit alike.
+ *  Only the ticking thread touches the shapes. Other threads post WorldCommands,
+ *  which are applied at the start of the next tick, and draw published snapshots.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class World {
+    private final ShapeStore shapes = new ShapeStore(16);	// the shapes in the world
+    private final SpatialIndex index = new SpatialIndex();	// finds the shapes at a point or in a rectangle
+    private volatile ParallelMover mover = null;	// moves the shapes on all cores, null to move them on the ticking thread
+    private volatile CollisionDetector collisions = null;	// bounces shapes off each other, null to let them pass through
+    private volatile RunRecorder recorder = null;	// writes every tick to a log, or null
+    private volatile RunPlayer player = null;	// replaces moving the shapes by playing a log, or null
+    private volatile WorldListener listener = null;	// told when a log fails, or null
+    private final ConcurrentLinkedQueue<WorldCommand> commands = new ConcurrentLinkedQueue<WorldCommand>();	// changes waiting for the next tick
+    private final SnapshotBuffer snapshots = new SnapshotBuffer(shapes.palette);	// copies of the shapes for drawing
+    private SplittableRandom random;	// the root of every random stream in the world
+
+    /** constructor to create an empty world
+     * @param width     the width of the world
+     * @param height    the height of the world
+     */
+    public World(int width, int height) {
+        this(width, height, new SplittableRandom().nextLong());
+    }
+
+    /** constructor to create an empty world which runs the same every time
+     * @param width     the width of the world
+     * @param height    the height of the world
+     * @param seed      the seed of every random choice made in the world
+     */
+    public World(int width, int height, long seed) {
+        setSize(width, height);
+        setSeed(seed);
+    }
+
+    /** restart the random streams of the world; ticking thread only
+     * @param seed    the seed of every random choice made from now on
+     */
+    public void setSeed(long seed) {
+        random = new SplittableRandom(seed);
+        shapes.setRandom(random.split());
+    }
+
+    /** return a new random stream, independent of every other stream of the world; ticking thread only
+     * @return the stream, for one thread
+     */
+    public SplittableRandom split() {
+        return random.split();
+    }
+
+    /** return the shapes in the world
+     * @return the store holding the shapes
+     */
+    public ShapeStore getShapes() { return shapes; }
+
+    /** return the spatial index of the shapes, as of the last tick
+     * @return the index
+     */
+    public SpatialIndex getIndex() { return index; }
+
+    /** set the size of the world, which is the margin all shapes bounce and fall within
+     * @param width     the width of the world
+     * @param height    the height of the world
+     */
+    public void setSize(int width, int height) {
+        shapes.setMarginSize(width, height);
+    }
+
+    /** return the width/height of the world
+     * @return the width/height
+     */
+    public int getWidth() { return shapes.marginWidth; }
+
+    public int getHeight() { return shapes.marginHeight; }
+
+    /** return the number of ticks run so far
+     * @return the number of ticks
+     */
+    public long getTicks() { return shapes.time(); }
+
+    /** set the mover used to move the shapes on all cores, from the next tick; any thread
+     *    The ticking thread closes the mover it replaces, once no tick is using it.
+     * @param m    the mover, or null to move the shapes on the ticking thread
+     */
+    public void setParallelMover(ParallelMover m) {
+        post(w -> {
+            ParallelMover old = mover;
+            mover = m;
+            if (old != null && old != m)
+                old.close();
+        });
+    }
+
+    /** set the collision detector which bounces shapes off each other
+     * @param c    the detector, or null to let shapes pass through each other
+     */
+    public void setCollisions(CollisionDetector c) { collisions = c; }
+
+    /** set the recorder which logs the shapes after every tick
+     * @param r    the recorder, or null to stop recording; the caller closes the old one
+     */
+    public void setRecorder(RunRecorder r) { recorder = r; }
+
+    /** set what is told when recording or playback stops on an error
+     * @param l    the listener, or null
+     */
+    public void setListener(WorldListener l) { listener = l; }
+
+    /** set the log the shapes are played back from instead of moving them
+     * @param p    the player, or null to go on moving the shapes from where playback left them
+     */
+    public void setPlayer(RunPlayer p) {
+        if (p == null && player != null) {
+            for (int i = 0; i < shapes.size(); i++)
+                shapes.rebase(i);
+        }
+        player = p;
+    }
+
+    /** return whether the shapes are played back from a log rather than moved
+     * @return true while a player is set
+     */
+    public boolean isPlaying() { return player != null; }
+
+    /** add shapes at random positions inside the world
+     * @param count     the number of shapes to add
+     * @param type      ShapeStore.RECTANGLE or ShapeStore.SQUARE
+     * @param pathType  MovingShape.MovingPath.FALLING or BOUNCING
+     * @param w         the width of the shapes
+     * @param h         the height of the shapes
+     */
+    public void populate(int count, int type, int pathType, int w, int h) {
+        SplittableRandom random = split();
+        shapes.ensureCapacity(shapes.size() + count);
+        int spanX = Math.max(1, getWidth() - w), spanY = Math.max(1, getHeight() - h);
+        for (int i = 0; i < count; i++)
+            shapes.add(type, random.nextInt(spanX), random.nextInt(spanY), Color.black, Color.white, pathType, w, h);
+    }
+
+    /** write every shape, path state included, to a scene file; ticking thread only
+     * @param file    the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void saveScene(Path file) throws IOException {
+        SceneFile.save(shapes, file);
+    }
+
+    /** replace the shapes with those in a scene file; ticking thread only
+     * @param file    the file written by saveScene
+     * @throws IOException if the file cannot be read or is not a scene
+     */
+    public void loadScene(Path file) throws IOException {
+        try {
+            SceneFile.load(file, shapes);
+        } finally {
+            index.update(shapes);
+            shapes.stats.measureBounds(shapes);
+        }
+    }
+
+    /** add shapes in one batch, placed within the world; ticking thread only
+     * @param spawner    what to add and where
+     * @return the index of the first new shape
+     */
+    public int spawn(Spawner spawner) {
+        return spawner.spawn(shapes, split());
+    }
+
+    /** queue a change to the world; any thread
+     * @param c    the change, applied by the ticking thread
+     */
+    public void post(WorldCommand c) {
+        commands.add(c);
+    }
+
+    /** apply the queued changes now; ticking thread only
+     *    Use this while the world is not ticking, so changes still take effect.
+     * @return true if there were any changes
+     */
+    public boolean applyCommands() {
+        if (!drainCommands())
+            return false;
+        index.update(shapes);
+        shapes.stats.measureBounds(shapes);
+        return true;
+    }
+
+    private boolean drainCommands() {
+        boolean any = false;
+        WorldCommand c;
+        while ((c = commands.poll()) != null) {
+            c.apply(this);
+            any = true;
+        }
+        return any;
+    }
+
+    /** copy the shapes for drawing; ticking thread only
+     */
+    public void publish() {
+        snapshots.publish(shapes);
+    }
+
+    /** return the newest published copy of the shapes; drawing thread only
+     *    The copy does not change until the next call.
+     * @return the snapshot
+     */
+    public ShapeStore getSnapshot() {
+        return snapshots.acquire();
+    }
+
+    /** advance the simulation by one fixed step, after applying the queued changes
+     */
+    public void tick() {
+        drainCommands();
+        RunPlayer p = player;
+        if (p != null) {
+            try {
+                if (!p.next(shapes)) {	// hold the last frame
+                    for (int i = 0; i < shapes.size(); i++) {
+                        shapes.prevX[i] = shapes.x[i];
+                        shapes.prevY[i] = shapes.y[i];
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Playback stopped: " + e.getMessage());
+                setPlayer(null);
+                close(p, e);
+                WorldListener l = listener;
+                if (l != null)
+                    l.playbackFailed(e);
+            }
+        } else {
+            ParallelMover m = mover;
+            if (m != null)
+                m.move(shapes);
+            else
+                shapes.move();
+            CollisionDetector c = collisions;
+            if (c != null)
+                c.resolve(shapes);
+        }
+        index.update(shapes);
+        shapes.stats.measureBounds(shapes);
+        RunRecorder r = recorder;
+        if (r != null) {
+            try {
+                r.record(shapes);
+            } catch (IOException e) {
+                System.err.println("Recording stopped: " + e.getMessage());
+                recorder = null;
+                close(r, e);
+                WorldListener l = listener;
+                if (l != null)
+                    l.recordingFailed(e);
+            }
+        }
+    }
+
+    /** close a log which failed, keeping the failure as the error to report
+     */
+    private static void close(Closeable log, IOException failure) {
+        try {
+            log.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /** jump to a tick, putting every shape where its path has it then
+     *    Much faster than ticking there, but shapes do not bounce off each other on the way.
+     *    Going back stops at the last change made to each shape.
+     * @param tick    the tick to go to
+     */
+    public void seek(long tick) {
+        drainCommands();
+        shapes.seek(tick);
+        index.update(shapes);
+        shapes.stats.measureBounds(shapes);
+    }
+}
@@ -0,0 +1,16 @@
+/*
+ *  ===============================================================================
+ *  WorldCommand.java : A change to a world, queued by any thread and applied by
+ *  the thread that ticks the world, at the start of its next tick.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+public interface WorldCommand {
+
+    /** make the change
+     * @param world    the world to change
+     */
+    void apply(World world);
+}
@@ -0,0 +1,24 @@
+/*
+ *  ===============================================================================
+ *  WorldListener.java : Told by a world when a log it was writing or playing
+ *  failed. The world has closed the log and gone on without it by then.
+ *  Called on the thread that ticks the world.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.io.*;
+
+public interface WorldListener {
+
+    /** recording stopped because the log could not be written
+     * @param e    the cause
+     */
+    void recordingFailed(IOException e);
+
+    /** playback stopped because the log could not be read or is corrupt
+     * @param e    the cause
+     */
+    void playbackFailed(IOException e);
+}
@@ -0,0 +1,83 @@
+/*
+ *  ===============================================================================
+ *  CollisionDetectorTest.java : Checks that the sweep finds the very pairs a test
+ *  of every pair of shapes finds, as the shapes move, bounce and come and go.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.Color;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollisionDetectorTest {
+
+    /** a pair as one number, the smaller index first
+     */
+    private static long pair(int i, int j) {
+        return ((long) Math.min(i, j) << 32) | Math.max(i, j);
+    }
+
+    /** the overlapping pairs of bouncing shapes, by testing every pair
+     */
+    private static Set<Long> overlapping(ShapeStore s) {
+        Set<Long> pairs = new HashSet<Long>();
+        for (int i = 0; i < s.size(); i++) {
+            if (s.pathType(i) != MovingShape.MovingPath.BOUNCING)
+                continue;
+            for (int j = i + 1; j < s.size(); j++) {
+                if (s.pathType(j) != MovingShape.MovingPath.BOUNCING)
+                    continue;
+                if (s.x[i] < s.x[j] + s.width[j] && s.x[j] < s.x[i] + s.width[i]
+                        && s.y[i] < s.y[j] + s.height(j) && s.y[j] < s.y[i] + s.height(i))
+                    pairs.add(pair(i, j));
+            }
+        }
+        return pairs;
+    }
+
+    /** sweep without bouncing, then resolve, which must find the same pairs
+     */
+    private static void assertFindsAll(CollisionDetector detector, ShapeStore s, String when) {
+        Set<Long> expected = overlapping(s), found = new HashSet<Long>();
+        detector.sweep(s, (i, j) -> assertTrue(found.add(pair(i, j)), "pair " + i + ", " + j + " found twice " + when));
+        assertEquals(expected, found, when);
+        assertEquals(expected.size(), detector.getCollisions(), when);
+        detector.resolve(s);
+        assertEquals(expected.size(), detector.getCollisions(), when);
+    }
+
+    @Test
+    void findsWhatEveryPairTestFinds() {
+        World w = new World(600, 400, 27);
+        Spawner spawner = new Spawner();
+        spawner.setCount(1200);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setSize(0, 40, 0, 40);
+        w.spawn(spawner);
+        ShapeStore s = w.getShapes();
+        CollisionDetector detector = new CollisionDetector();
+        int found = 0;
+        for (int t = 0; t < 30; t++) {	// moved a little, so the order is mended by insertion
+            w.tick();
+            assertFindsAll(detector, s, "at tick " + t);
+            found += detector.getCollisions();
+        }
+        assertTrue(found > 0, "no shapes overlapped");
+        for (int k = 0; k < 20; k++)	// a few new shapes, sorted in below
+            s.add(ShapeStore.RECTANGLE, 30 * k, 15 * k, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 50, 20);
+        assertFindsAll(detector, s, "with a few new shapes");
+        spawner.setCount(2000);	// many new shapes, sorted from scratch
+        w.spawn(spawner);
+        assertFindsAll(detector, s, "with many new shapes");
+        s.clear();	// fewer shapes than were sorted
+        spawner.setCount(100);
+        w.spawn(spawner);
+        assertFindsAll(detector, s, "with fewer shapes");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  ===============================================================================
+ *  ColorPaletteTest.java : Checks interning, the limit on colours, and that readers
+ *  on other threads always see a colour for every index below the size.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorPaletteTest {
+
+    @Test
+    void internsEachColourOnce() {
+        ColorPalette p = new ColorPalette();
+        assertEquals(0, p.intern(Color.red));
+        assertEquals(1, p.intern(Color.blue));
+        assertEquals(0, p.intern(new Color(255, 0, 0)));
+        assertEquals(2, p.size());
+        assertEquals(Color.blue, p.color(1));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> p.color(2));
+    }
+
+    @Test
+    void fullPaletteRefusesNewColours() {
+        ColorPalette p = new ColorPalette();
+        for (int c = 0; c < ColorPalette.MAX_COLORS - 1; c++)
+            assertEquals(c, p.intern(new Color(c)));
+        assertTrue(p.hasRoom(1));
+        assertTrue(p.hasRoom(0, Color.white, Color.white, new Color(0)));	// one new colour, twice, and a known one
+        assertFalse(p.hasRoom(0, Color.white, Color.pink));
+        assertFalse(p.hasRoom(2));
+        assertEquals(ColorPalette.MAX_COLORS - 1, p.intern(Color.white));
+        assertFalse(p.hasRoom(0, Color.pink));
+        assertTrue(p.hasRoom(0, Color.white, new Color(7)));
+        assertEquals(7, p.intern(new Color(7)));
+        assertThrows(IllegalStateException.class, () -> p.intern(Color.pink));
+    }
+
+    @Test
+    void readersSeeEveryColourBelowTheSize() throws InterruptedException {
+        ColorPalette p = new ColorPalette();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger missing = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                int n = p.size();
+                if (n > 0 && p.color(n - 1) == null)
+                    missing.incrementAndGet();
+            }
+        });
+        reader.start();
+        for (int c = 0; c < 20000; c++)
+            p.intern(new Color(c));
+        done.set(true);
+        reader.join();
+        assertEquals(0, missing.get());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  ===============================================================================
+ *  DamageTrackerTest.java : Checks that the damaged regions cover what the shapes
+ *  changed, in a world of any size, in a few rectangles, and that too much damage
+ *  paints everything.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.util.*;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DamageTrackerTest {
+
+    private static boolean covered(List<Rectangle> regions, Rectangle box) {
+        for (Rectangle r : regions)
+            if (r.contains(box))
+                return true;
+        return false;
+    }
+
+    /** a seeded world of mixed shapes and paths
+     */
+    private static World world(int count, int maxSize) {
+        World w = new World(800, 600, 17);
+        Spawner spawner = new Spawner();
+        spawner.setCount(count);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setSize(1, maxSize, 1, maxSize);
+        w.spawn(spawner);
+        return w;
+    }
+
+    /** the box a shape is drawn in anywhere between where it was and where it is, outline included
+     */
+    private static Rectangle box(ShapeStore s, int i) {
+        int left = Math.min(s.prevX[i], s.x[i]), top = Math.min(s.prevY[i], s.y[i]);
+        return new Rectangle(left, top, Math.max(s.prevX[i], s.x[i]) - left + s.width[i] + 1,
+            Math.max(s.prevY[i], s.y[i]) - top + s.height(i) + 1);
+    }
+
+    /** tick a world, checking after each tick that the regions drained cover the box each
+     *  shape is drawn in now and the box it was drawn in the tick before
+     * @return the number of ticks which painted regions rather than everything
+     */
+    private static int assertCovers(World w, DamageTracker tracker, int ticks) {
+        ShapeStore s = w.getShapes();
+        Rectangle area = new Rectangle(0, 0, s.getMarginWidth(), s.getMarginHeight());
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        Rectangle[] before = new Rectangle[s.size()];
+        tracker.track(s);
+        tracker.drain(regions);
+        int partial = 0;
+        for (int t = 0; t < ticks; t++) {
+            for (int i = 0; i < s.size(); i++)
+                before[i] = box(s, i);
+            w.tick();
+            tracker.track(s);
+            if (tracker.drain(regions))
+                continue;
+            partial++;
+            assertTrue(regions.size() <= DamageTracker.MAX_REGIONS, regions.size() + " regions");
+            Area painted = new Area();
+            for (Rectangle r : regions)
+                painted.add(new Area(r));
+            for (int i = 0; i < s.size(); i++) {
+                for (Rectangle b : new Rectangle[] { before[i], box(s, i) }) {
+                    Rectangle visible = b.intersection(area);
+                    if (!visible.isEmpty())
+                        assertTrue(painted.contains(visible), "shape " + i + " in " + b + " at tick " + t);
+                }
+            }
+        }
+        return partial;
+    }
+
+    @Test
+    void coversEveryMove() {
+        assertEquals(40, assertCovers(world(25, 30), new DamageTracker(), 40));
+    }
+
+    /** far more runs of tiles than regions, so the grid is coarsened and the rectangles joined
+     */
+    @Test
+    void coversEveryMoveInFewRegions() {
+        assertTrue(assertCovers(world(300, 8), new DamageTracker(1), 40) > 0);
+    }
+
+    @Test
+    void paintsEverythingPastFullFraction() {
+        assertEquals(0, assertCovers(world(25, 30), new DamageTracker(0), 5));
+        assertEquals(0, assertCovers(world(2000, 60), new DamageTracker(), 5), "shapes damaging most of the area");
+    }
+
+    @Test
+    void paintsEverythingWhenInvalidOrResized() {
+        World w = world(25, 30);
+        DamageTracker tracker = new DamageTracker();
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        tracker.track(w.getShapes());
+        tracker.drain(regions);
+        w.tick();
+        tracker.track(w.getShapes());
+        tracker.invalidate();
+        assertTrue(tracker.drain(regions));
+        assertTrue(regions.isEmpty());
+        w.tick();
+        tracker.track(w.getShapes());
+        assertFalse(tracker.drain(regions));
+        w.setSize(500, 300);
+        tracker.track(w.getShapes());
+        assertTrue(tracker.drain(regions), "a new margin paints everything");
+        w.tick();
+        tracker.track(w.getShapes());
+        assertFalse(tracker.drain(regions));
+    }
+
+    /** a grid of tiles of the default size over this world would take about a gigabyte
+     */
+    @Test
+    void tracksHugeWorld() {
+        ShapeStore s = new ShapeStore(1);
+        s.setMarginSize(1000000, 1000000);
+        int i = s.add(ShapeStore.RECTANGLE, 400000, 700000, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 20, 30);
+        DamageTracker tracker = new DamageTracker();
+        List<Rectangle> regions = new ArrayList<Rectangle>();
+        tracker.track(s);
+        assertTrue(tracker.drain(regions), "a new grid paints everything");
+        s.move();
+        tracker.track(s);
+        assertFalse(tracker.drain(regions));
+        assertTrue(covered(regions, new Rectangle(s.prevX[i], s.prevY[i], 20, 30)));
+        assertTrue(covered(regions, new Rectangle(s.x[i], s.y[i], 20, 30)));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  ===============================================================================
+ *  ParallelMoverTest.java : Checks that moving a store on several threads puts
+ *  every shape in the very same state as moving it on one.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelMoverTest {
+
+    /** a seeded world of mixed shapes and paths; the count splits unevenly into chunks
+     */
+    private static ShapeStore store(int count) {
+        World w = new World(1000, 700, 8);
+        Spawner spawner = new Spawner();
+        spawner.setCount(count);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setSize(1, 50, 1, 50);
+        w.spawn(spawner);
+        return w.getShapes();
+    }
+
+    private static void assertSameState(ShapeStore expected, ShapeStore actual, int tick) {
+        assertEquals(expected.time(), actual.time(), "time at tick " + tick);
+        for (int i = 0; i < expected.size(); i++) {
+            String shape = "shape " + i + " at tick " + tick;
+            assertEquals(expected.x[i], actual.x[i], "x of " + shape);
+            assertEquals(expected.y[i], actual.y[i], "y of " + shape);
+            assertEquals(expected.prevX[i], actual.prevX[i], "prevX of " + shape);
+            assertEquals(expected.prevY[i], actual.prevY[i], "prevY of " + shape);
+            assertEquals(expected.deltaX[i], actual.deltaX[i], "deltaX of " + shape);
+            assertEquals(expected.deltaY[i], actual.deltaY[i], "deltaY of " + shape);
+            assertEquals(Double.doubleToLongBits(expected.phase[i]), Double.doubleToLongBits(actual.phase[i]), "phase of " + shape);
+        }
+    }
+
+    /** move one store serially and one with the mover, tick by tick
+     */
+    private static void assertMovesLikeSerial(ParallelMover mover, int count, int ticks) {
+        ShapeStore serial = store(count), parallel = store(count);
+        try {
+            for (int t = 1; t <= ticks; t++) {
+                serial.move();
+                mover.move(parallel);
+                assertSameState(serial, parallel, t);
+            }
+        } finally {
+            mover.close();
+        }
+    }
+
+    @Test
+    void movesLikeSerial() {
+        assertMovesLikeSerial(new ParallelMover(4, 1000), 30011, 200);
+    }
+
+    /** a store below the threshold, or a single worker, is moved on the calling thread
+     */
+    @Test
+    void movesSmallStoreLikeSerial() {
+        assertMovesLikeSerial(new ParallelMover(4, 1000), 999, 50);
+        assertMovesLikeSerial(new ParallelMover(1, 1), 5000, 50);
+    }
+
+    @Test
+    void movesEveryChunkOnce() {
+        assertMovesLikeSerial(new ParallelMover(3, 1), 7, 50);	// a chunk of one shape each
+    }
+
+    @Test
+    void refusesBadSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelMover(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelMover(2, 0));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *  ===============================================================================
+ *  RunPlayerTest.java : Checks that RunPlayer plays back what RunRecorder wrote,
+ *  frame by frame and by seeking, and that it refuses a log cut short or corrupt.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunPlayerTest {
+    @TempDir
+    Path dir;
+
+    /** everything a frame holds about the shapes, colours by value as the palettes differ
+     */
+    private static long[] state(ShapeStore s) {
+        long[] state = new long[4 + s.size() * 14];
+        int k = 0;
+        state[k++] = s.time();
+        state[k++] = s.getMarginWidth();
+        state[k++] = s.getMarginHeight();
+        state[k++] = s.size();
+        for (int i = 0; i < s.size(); i++) {
+            state[k++] = s.x[i];
+            state[k++] = s.y[i];
+            state[k++] = s.prevX[i];
+            state[k++] = s.prevY[i];
+            state[k++] = s.width[i];
+            state[k++] = s.height[i];
+            state[k++] = s.shapeType(i);
+            state[k++] = s.isSelected(i) ? 1 : 0;
+            state[k++] = s.palette.color(s.borderColor[i]).getRGB();
+            state[k++] = s.palette.color(s.fillColor[i]).getRGB();
+            state[k++] = s.pathType(i);
+            state[k++] = s.deltaX[i];
+            state[k++] = s.deltaY[i];
+            state[k++] = Double.doubleToLongBits(s.amplitude[i]);
+        }
+        return state;
+    }
+
+    /** record a seeded world for 50 ticks, changing its shapes between ticks
+     * @return the state after each tick, in order
+     */
+    private Map<Long, long[]> record(Path file) throws IOException {
+        World w = new World(600, 400, 11);
+        Spawner spawner = new Spawner();
+        spawner.setCount(200);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setColors(Spawner.randomColors(3, w.split()), Spawner.randomColors(4, w.split()));
+        w.spawn(spawner);
+        ShapeStore s = w.getShapes();
+        Map<Long, long[]> states = new LinkedHashMap<>();
+        try (RunRecorder recorder = new RunRecorder(file, 10)) {
+            w.setRecorder(recorder);
+            for (int t = 1; t <= 50; t++) {
+                switch (t) {
+                    case 13 -> s.add(ShapeStore.SQUARE, 50, 60, Color.red, Color.blue, MovingShape.MovingPath.FALLING, 20, 20);
+                    case 17 -> s.borderColor[5] = (short) s.palette.intern(Color.magenta);
+                    case 22 -> s.selectWhere(i -> i % 4 == 1);
+                    case 27 -> w.setSize(300, 200);
+                    case 31 -> { s.setWidth(7, 90); s.setHeight(8, 0); }
+                    case 36 -> s.setPath(9, MovingShape.MovingPath.FALLING);
+                    case 43 -> {	// fewer shapes in a delta frame
+                        s.clear();
+                        s.add(ShapeStore.RECTANGLE, 5, 6, Color.black, Color.orange, MovingShape.MovingPath.BOUNCING, 30, 10);
+                    }
+                    default -> { }
+                }
+                w.tick();
+                states.put(s.time(), state(s));
+            }
+            w.setRecorder(null);
+            assertEquals(50, recorder.getFrames());
+        }
+        return states;
+    }
+
+    @Test
+    void playsBackEveryFrame() throws IOException {
+        Path file = dir.resolve("run.bin");
+        Map<Long, long[]> states = record(file);
+        ShapeStore played = new ShapeStore(1);
+        try (RunPlayer player = new RunPlayer(file)) {
+            for (Map.Entry<Long, long[]> e : states.entrySet()) {
+                assertTrue(player.next(played), "frame at tick " + e.getKey());
+                assertArrayEquals(e.getValue(), state(played), "frame at tick " + e.getKey());
+            }
+            assertFalse(player.next(played));
+        }
+    }
+
+    /** seeking backwards and forwards starts from the keyframe before the tick and plays the deltas after it
+     */
+    @Test
+    void seeksToEveryFrame() throws IOException {
+        Path file = dir.resolve("run.bin");
+        Map<Long, long[]> states = record(file);
+        List<Long> ticks = new ArrayList<>(states.keySet());
+        Collections.shuffle(ticks, new Random(3));
+        ShapeStore played = new ShapeStore(1);
+        try (RunPlayer player = new RunPlayer(file)) {
+            assertEquals(ticks.stream().mapToLong(t -> t).min().getAsLong(), player.getFirstTick());
+            assertEquals(ticks.stream().mapToLong(t -> t).max().getAsLong(), player.getLastTick());
+            for (long tick : ticks) {
+                assertTrue(player.seek(played, tick));
+                assertArrayEquals(states.get(tick), state(played), "seek to tick " + tick);
+            }
+        }
+    }
+
+    /** a recording which was not closed ends at its last whole frame
+     */
+    @Test
+    void playsRunCutShortUpToTheCut() throws IOException {
+        Path file = dir.resolve("run.bin");
+        Map<Long, long[]> states = record(file);
+        byte[] log = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(log, log.length - 7));
+        ShapeStore played = new ShapeStore(1);
+        try (RunPlayer player = new RunPlayer(file)) {
+            int frames = 0;
+            while (player.next(played))
+                frames++;
+            assertEquals(states.size() - 1, frames);
+        }
+    }
+
+    @Test
+    void refusesWhatIsNotARun() throws IOException {
+        Path file = dir.resolve("run.bin");
+        record(file);
+        byte[] log = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(log, 7));	// cut inside the header
+        assertThrows(IOException.class, () -> new RunPlayer(file).close());
+        byte[] bad = log.clone();
+        bad[0] ^= 1;
+        Files.write(file, bad);
+        assertThrows(IOException.class, () -> new RunPlayer(file).close());
+        bad = log.clone();
+        ByteBuffer.wrap(bad).putInt(4, RunRecorder.VERSION + 1);
+        Files.write(file, bad);
+        assertThrows(IOException.class, () -> new RunPlayer(file).close());
+    }
+
+    /** play a log with one of its frames, length and all, changed by an edit
+     * @param index    the number of the frame in the log
+     */
+    private void assertCorrupt(Path file, byte[] log, int index, java.util.function.Consumer<ByteBuffer> edit) throws IOException {
+        ByteBuffer frame = ByteBuffer.wrap(log.clone());
+        int p = 12;
+        for (int k = 0; k < index; k++)
+            p += 4 + frame.getInt(p);
+        edit.accept(frame.position(p).slice());
+        Files.write(file, frame.array());
+        ShapeStore played = new ShapeStore(1);
+        IOException e = assertThrows(IOException.class, () -> {
+            try (RunPlayer player = new RunPlayer(file)) {
+                while (player.next(played))
+                    ;
+            }
+        });
+        assertTrue(e.getMessage().contains("corrupt"), e.getMessage());
+    }
+
+    @Test
+    void refusesCorruptFrames() throws IOException {
+        Path file = dir.resolve("run.bin");
+        record(file);
+        byte[] log = Files.readAllBytes(file);
+        assertCorrupt(file, log, 0, f -> f.putInt(0, 3));	// shorter than a frame header
+        assertCorrupt(file, log, 1, f -> f.put(4, (byte) 9));	// neither a keyframe nor a delta
+        assertCorrupt(file, log, 2, f -> f.put(4 + 1 + 8 + 2 + 2, (byte) 0));	// fewer colours than the frames before had
+        assertCorrupt(file, log, 0, f -> {	// a margin width over five bytes
+            for (int k = 13; k < 19; k++)
+                f.put(k, (byte) 0xFF);
+        });
+        byte[] cut = Arrays.copyOf(log, 12 + 4 + 9 + 3);	// the only frame ends three bytes after its header
+        ByteBuffer.wrap(cut).putInt(12, 9 + 3);
+        Files.write(file, cut);
+        try (RunPlayer player = new RunPlayer(file)) {
+            assertThrows(IOException.class, () -> player.next(new ShapeStore(1)));
+        }
+    }
+
+    /** a palette holds one more colour than a short can count up to
+     */
+    @Test
+    void playsRunWithFullPalette() throws IOException {
+        ShapeStore s = new ShapeStore(1);
+        s.setMarginSize(400, 300);
+        for (int c = 0; c < ColorPalette.MAX_COLORS - 1; c++)
+            s.palette.intern(new Color(c));
+        s.add(ShapeStore.RECTANGLE, 10, 20, Color.pink, new Color(5), MovingShape.MovingPath.BOUNCING, 30, 40);
+        assertEquals(ColorPalette.MAX_COLORS, s.palette.size());
+        Path file = dir.resolve("full.bin");
+        try (RunRecorder recorder = new RunRecorder(file)) {
+            recorder.record(s);
+        }
+        ShapeStore played = new ShapeStore(1);
+        try (RunPlayer player = new RunPlayer(file)) {
+            assertTrue(player.next(played));
+        }
+        assertEquals(1, played.size());
+        assertEquals(Color.pink, played.palette.color(played.borderColor[0]));
+        assertEquals(new Color(5), played.palette.color(played.fillColor[0]));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  ===============================================================================
+ *  SceneFileTest.java : Checks that a saved scene loads back into the very same
+ *  shapes, and that a file with a bad header or shape is refused.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SceneFileTest {
+    @TempDir
+    Path dir;
+
+    /** a seeded world of mixed shapes and paths, some selected, moved and resized part way
+     */
+    private static World world() {
+        World w = new World(640, 480, 21);
+        Spawner spawner = new Spawner();
+        spawner.setCount(500);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setColors(Spawner.randomColors(4, w.split()), Spawner.randomColors(6, w.split()));
+        w.spawn(spawner);
+        w.getShapes().selectWhere(i -> i % 5 == 2);
+        for (int t = 0; t < 40; t++)
+            w.tick();
+        w.setSize(500, 300);
+        for (int t = 0; t < 40; t++)
+            w.tick();
+        return w;
+    }
+
+    private static void assertSameShapes(ShapeStore expected, ShapeStore actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.time(), actual.time());
+        assertEquals(expected.getMarginWidth(), actual.getMarginWidth());
+        assertEquals(expected.getMarginHeight(), actual.getMarginHeight());
+        assertEquals(expected.selectedCount(), actual.selectedCount());
+        for (int i = 0; i < expected.size(); i++) {
+            String shape = "shape " + i;
+            assertEquals(expected.x[i], actual.x[i], "x of " + shape);
+            assertEquals(expected.y[i], actual.y[i], "y of " + shape);
+            assertEquals(expected.prevX[i], actual.prevX[i], "prevX of " + shape);
+            assertEquals(expected.prevY[i], actual.prevY[i], "prevY of " + shape);
+            assertEquals(expected.width[i], actual.width[i], "width of " + shape);
+            assertEquals(expected.height[i], actual.height[i], "height of " + shape);
+            assertEquals(expected.shapeType(i), actual.shapeType(i), "type of " + shape);
+            assertEquals(expected.pathType(i), actual.pathType(i), "path of " + shape);
+            assertEquals(expected.isSelected(i), actual.isSelected(i), "selection of " + shape);
+            assertEquals(expected.palette.color(expected.borderColor[i]), actual.palette.color(actual.borderColor[i]), "border of " + shape);
+            assertEquals(expected.palette.color(expected.fillColor[i]), actual.palette.color(actual.fillColor[i]), "fill of " + shape);
+        }
+    }
+
+    /** the loading store's palette already has other colours, so the colours of the file are mapped
+     */
+    @Test
+    void loadsWhatWasSaved() throws IOException {
+        Path file = dir.resolve("scene.bin");
+        World saved = world();
+        SceneFile.save(saved.getShapes(), file);
+        ShapeStore loaded = new ShapeStore(1);
+        loaded.palette.intern(Color.cyan);
+        loaded.palette.intern(Color.gray);
+        loaded.add(ShapeStore.SQUARE, 1, 2, Color.cyan, Color.gray, MovingShape.MovingPath.BOUNCING, 3, 3);
+        SceneFile.load(file, loaded);
+        assertSameShapes(saved.getShapes(), loaded);
+    }
+
+    /** the path state is saved too, so a loaded scene moves and seeks on as the saved one does
+     */
+    @Test
+    void loadedSceneMovesOn() throws IOException {
+        Path file = dir.resolve("scene.bin");
+        World saved = world();
+        SceneFile.save(saved.getShapes(), file);
+        ShapeStore loaded = new ShapeStore(1);
+        SceneFile.load(file, loaded);
+        ShapeStore expected = saved.getShapes();
+        for (int t = 0; t < 50; t++) {
+            expected.move();
+            loaded.move();
+        }
+        assertSameShapes(expected, loaded);
+        expected.seek(1000);
+        loaded.seek(1000);
+        assertSameShapes(expected, loaded);
+    }
+
+    /** save a scene and change an int in its header
+     * @param offset    where the int to change is, in bytes from the start
+     */
+    private void assertRefused(int offset, int value) throws IOException {
+        Path file = dir.resolve("scene.bin");
+        SceneFile.save(world().getShapes(), file);
+        byte[] scene = Files.readAllBytes(file);
+        ByteBuffer.wrap(scene).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(file, scene);
+        ShapeStore s = new ShapeStore(1);
+        assertThrows(IOException.class, () -> SceneFile.load(file, s), "int at byte " + offset + " set to " + value);
+        assertEquals(0, s.size());
+    }
+
+    @Test
+    void refusesBadHeader() throws IOException {
+        assertRefused(0, 0);	// magic
+        assertRefused(4, SceneFile.VERSION + 1);
+        assertRefused(8, -1);	// number of shapes
+        assertRefused(8, 501);
+        assertRefused(12, -1);	// margin width
+        assertRefused(16, -640);	// margin height
+        assertRefused(28, -1);	// palette size
+        assertRefused(28, ColorPalette.MAX_COLORS + 1);
+    }
+
+    @Test
+    void refusesCutShortOrBadShape() throws IOException {
+        Path file = dir.resolve("scene.bin");
+        ShapeStore s = world().getShapes();
+        SceneFile.save(s, file);
+        byte[] scene = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(scene, scene.length - 1));
+        assertThrows(IOException.class, () -> SceneFile.load(file, new ShapeStore(1)));
+        Files.write(file, Arrays.copyOf(scene, 20));
+        assertThrows(IOException.class, () -> SceneFile.load(file, new ShapeStore(1)));
+        s.width[7] = -3;
+        SceneFile.save(s, file);
+        ShapeStore loaded = new ShapeStore(1);
+        IOException e = assertThrows(IOException.class, () -> SceneFile.load(file, loaded));
+        assertTrue(e.getMessage().endsWith("at shape 7"), e.getMessage());
+        assertEquals(0, loaded.size());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  ===============================================================================
+ *  SceneStatsTest.java : Checks that the figures kept up to date as the store
+ *  changes are the ones a count of every shape gives, and that a tick measures the
+ *  box around every shape.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SceneStatsTest {
+
+    /** count every shape of the store and compare with its stats
+     */
+    private static void assertCounted(ShapeStore s, String after) {
+        long area = 0, selectedArea = 0;
+        int[] shapes = new int[2], paths = new int[MovingShape.MovingPath.PATHS.length];
+        for (int i = 0; i < s.size(); i++) {
+            long a = (long) s.width[i] * s.height(i);
+            area += a;
+            if (s.isSelected(i))
+                selectedArea += a;
+            shapes[s.shapeType(i)]++;
+            paths[s.pathType(i)]++;
+        }
+        SceneStats stats = s.stats();
+        assertEquals(area, stats.getArea(), "area after " + after);
+        assertEquals(selectedArea, stats.getSelectedArea(), "selected area after " + after);
+        for (int t = 0; t < shapes.length; t++)
+            assertEquals(shapes[t], stats.getShapeCount(t), "shapes of type " + t + " after " + after);
+        for (int p = 0; p < paths.length; p++)
+            assertEquals(paths[p], stats.getPathCount(p), "shapes on path " + p + " after " + after);
+    }
+
+    @Test
+    void countersMatchRecount() {
+        World w = new World(800, 600, 13);
+        Spawner spawner = new Spawner();
+        spawner.setCount(2000);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setSize(1, 80, 1, 80);
+        w.spawn(spawner);
+        ShapeStore s = w.getShapes();
+        assertCounted(s, "spawn");
+        s.add(ShapeStore.SQUARE, 5, 5, Color.black, Color.red, MovingShape.MovingPath.FALLING, 40, 40);
+        assertCounted(s, "add");
+        s.selectWhere(i -> i % 3 == 0);
+        assertCounted(s, "select where");
+        SplittableRandom random = new SplittableRandom(4);
+        for (int k = 0; k < 500; k++) {	// selected or not, square or not
+            int i = random.nextInt(s.size());
+            switch (random.nextInt(4)) {
+                case 0 -> s.setWidth(i, random.nextInt(100));
+                case 1 -> s.setHeight(i, random.nextInt(100));
+                case 2 -> s.setSelected(i, !s.isSelected(i));
+                default -> s.setPath(i, random.nextInt(MovingShape.MovingPath.PATHS.length));
+            }
+        }
+        assertCounted(s, "resize, select and path changes");
+        s.invertSelection();
+        assertCounted(s, "invert");
+        s.setSelected(7, true);
+        s.setSelected(7, true);	// selecting twice counts once
+        s.setSelected(8, false);
+        s.setSelected(8, false);
+        assertCounted(s, "selecting and deselecting twice");
+        s.selectAll();
+        assertCounted(s, "select all");
+        s.forEachSelected(i -> s.setWidth(i, s.width[i] + 1));
+        assertCounted(s, "resizing selected shapes");
+        s.clearSelection();
+        assertCounted(s, "clear selection");
+        for (int t = 0; t < 20; t++)
+            w.tick();
+        assertCounted(s, "ticks");
+        Rectangle box = new Rectangle(s.x[0], s.y[0], s.width[0], s.height(0));
+        for (int i = 1; i < s.size(); i++)
+            box.add(new Rectangle(s.x[i], s.y[i], s.width[i], s.height(i)));
+        assertEquals(box, s.stats().getBounds());
+        ShapeStore copy = new ShapeStore(1);
+        s.copyTo(copy);
+        assertCounted(copy, "copy");
+        s.clear();
+        assertCounted(s, "clear");
+        w.spawn(spawner);
+        s.invertSelection();
+        assertCounted(s, "spawn after clear");
+    }
+}
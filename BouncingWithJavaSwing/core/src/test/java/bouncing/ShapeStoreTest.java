@@ -0,0 +1,215 @@
+/*
+ *  ===============================================================================
+ *  ShapeStoreTest.java : Checks that the store keeps every shape's fields as it
+ *  grows, that the views read and write the arrays, that moving the store moves
+ *  each shape along its path, and that the index of selected shapes always lists
+ *  the very shapes which are selected.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShapeStoreTest {
+    private static final Color[] COLORS = { Color.black, Color.red, Color.green, Color.blue, Color.pink };
+
+    /** add shapes whose fields all follow from their number, growing the store many times
+     */
+    private static ShapeStore store(int count) {
+        ShapeStore s = new ShapeStore(1);
+        s.setMarginSize(700, 500);
+        s.setRandom(new SplittableRandom(count));	// falling paths start at random
+        for (int k = 0; k < count; k++)
+            assertEquals(k, s.add(k % 2, k % 650, k * 7 % 450, COLORS[k % 5], COLORS[(k + 2) % 5], k % 3 == 0 ? 0 : 1, 1 + k % 40, 2 + k % 30));
+        return s;
+    }
+
+    @Test
+    void keepsShapesAsItGrows() {
+        ShapeStore s = store(1000);
+        assertEquals(1000, s.size());
+        assertEquals(5, s.palette.size(), "colours are interned once");
+        for (int k = 0; k < 1000; k++) {
+            assertEquals(k % 2, s.shapeType(k));
+            assertEquals(k % 650, s.x[k]);
+            assertEquals(k * 7 % 450, s.y[k]);
+            assertEquals(s.x[k], s.prevX[k], "a new shape has not moved");
+            assertEquals(s.y[k], s.prevY[k]);
+            assertEquals(1 + k % 40, s.width[k]);
+            assertEquals(s.shapeType(k) == ShapeStore.SQUARE ? s.width[k] : 2 + k % 30, s.height(k));
+            assertEquals(k % 3 == 0 ? MovingShape.MovingPath.FALLING : MovingShape.MovingPath.BOUNCING, s.pathType(k));
+            assertEquals(COLORS[k % 5], s.palette.color(s.borderColor[k]));
+            assertEquals(COLORS[(k + 2) % 5], s.palette.color(s.fillColor[k]));
+            assertFalse(s.isSelected(k));
+        }
+    }
+
+    @Test
+    void viewsReadAndWriteTheArrays() {
+        ShapeStore s = store(10);
+        MovingShape square = s.shape(3), rectangle = s.shape(4);
+        assertInstanceOf(MovingSquare.class, square);
+        assertInstanceOf(MovingRectangle.class, rectangle);
+        assertEquals(s.x[3], square.getX());
+        assertEquals(s.width[4], rectangle.getWidth());
+        rectangle.setX(123);
+        rectangle.setY(45);
+        rectangle.setWidth(60);
+        rectangle.setHeight(70);
+        rectangle.setSelected(true);
+        rectangle.setBorderColor(Color.orange);
+        rectangle.setPath(MovingShape.MovingPath.FALLING);
+        assertEquals(123, s.x[4]);
+        assertEquals(123, s.prevX[4]);
+        assertEquals(45, s.y[4]);
+        assertEquals(60, s.width[4]);
+        assertEquals(70, s.height(4));
+        assertTrue(s.isSelected(4));
+        assertEquals(Color.orange, s.palette.color(s.borderColor[4]));
+        assertEquals(MovingShape.MovingPath.FALLING, s.pathType(4));
+        assertEquals(123, s.originX[4], "a change from outside the path is the new origin");
+        assertSame(rectangle, rectangle.at(6));
+        assertEquals(6, rectangle.getIndex());
+        assertEquals(s.y[6], rectangle.getY());
+    }
+
+    /** moving the store is moving each shape through its view, one at a time
+     */
+    @Test
+    void movesEveryShapeAlongItsPath() {
+        ShapeStore all = store(300), one = store(300);
+        for (int t = 1; t <= 400; t++) {
+            all.move();
+            for (int i = 0; i < one.size(); i++)
+                one.shape(i).move();
+            assertEquals(t, all.time());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals(one.x[i], all.x[i], "x of shape " + i + " at tick " + t);
+                assertEquals(one.y[i], all.y[i], "y of shape " + i + " at tick " + t);
+                if (all.pathType(i) == MovingShape.MovingPath.BOUNCING) {	// turned back at the sides, by the height it was given as always
+                    assertTrue(all.x[i] >= 0 && all.x[i] + all.width[i] <= 700, "x of shape " + i + " at tick " + t);
+                    assertTrue(all.y[i] >= 0 && all.y[i] + all.height[i] <= 500, "y of shape " + i + " at tick " + t);
+                } else	// falls, then starts again from the top
+                    assertTrue(all.y[i] == all.prevY[i] + MovingShape.FallingPath.DELTA_Y || all.y[i] == 0, "y of shape " + i + " at tick " + t);
+            }
+        }
+    }
+
+    @Test
+    void interpolatesBetweenMoves() {
+        ShapeStore s = store(1);
+        s.prevX[0] = 10;
+        s.x[0] = 20;
+        s.prevY[0] = 40;
+        s.y[0] = 30;
+        assertEquals(10, s.renderX(0, 0));
+        assertEquals(15, s.renderX(0, 0.5));
+        assertEquals(20, s.renderX(0, 1));
+        assertEquals(35, s.renderY(0, 0.5));
+    }
+
+    @Test
+    void copiesWhatItTakesToDraw() {
+        ShapeStore s = store(200);
+        s.selectWhere(i -> i % 4 == 0);
+        s.move();
+        ShapeStore copy = new ShapeStore(1, s.palette);
+        s.copyTo(copy);
+        assertEquals(s.size(), copy.size());
+        assertEquals(s.selectedCount(), copy.selectedCount());
+        assertEquals(s.getMarginWidth(), copy.getMarginWidth());
+        for (int i = 0; i < s.size(); i++) {
+            assertEquals(s.x[i], copy.x[i]);
+            assertEquals(s.prevY[i], copy.prevY[i]);
+            assertEquals(s.height(i), copy.height(i));
+            assertEquals(s.fillColor[i], copy.fillColor[i]);
+            assertEquals(s.isSelected(i), copy.isSelected(i));
+        }
+        int[] ids = { 148, 4, 9, 4 };	// in the order given, any shape any number of times
+        s.copyTo(copy, ids, ids.length);
+        assertEquals(ids.length, copy.size());
+        assertEquals(3, copy.selectedCount());
+        for (int k = 0; k < ids.length; k++) {
+            assertEquals(s.x[ids[k]], copy.x[k]);
+            assertEquals(s.shapeType(ids[k]), copy.shapeType(k));
+            assertEquals(s.isSelected(ids[k]), copy.isSelected(k));
+        }
+    }
+
+    /** the selection index agrees with the selected flags, both ways
+     */
+    private static void assertSelectionIndexed(ShapeStore s, String after) {
+        int selected = 0;
+        for (int i = 0; i < s.size(); i++) {
+            if (s.isSelected(i)) {
+                selected++;
+                int slot = s.selectedSlot[i];
+                assertTrue(slot >= 1 && slot <= s.selectedCount(), "slot of shape " + i + " after " + after);
+                assertEquals(i, s.selectedIds[slot - 1], "shape in the slot of shape " + i + " after " + after);
+            } else
+                assertEquals(0, s.selectedSlot[i], "slot of unselected shape " + i + " after " + after);
+        }
+        assertEquals(selected, s.selectedCount(), "selected count after " + after);
+        BitSet visited = new BitSet();
+        s.forEachSelected(i -> {
+            assertTrue(s.isSelected(i), "visited unselected shape " + i + " after " + after);
+            assertFalse(visited.get(i), "visited shape " + i + " twice after " + after);
+            visited.set(i);
+        });
+        assertEquals(selected, visited.cardinality(), "shapes visited after " + after);
+    }
+
+    @Test
+    void keepsSelectionIndexed() {
+        ShapeStore s = store(300);
+        SplittableRandom random = new SplittableRandom(6);
+        for (int step = 0; step < 3000; step++) {
+            int i = random.nextInt(s.size());
+            String op;
+            switch (random.nextInt(20)) {
+                case 0 -> { s.selectAll(); op = "select all"; }
+                case 1 -> { s.clearSelection(); op = "clear selection"; }
+                case 2 -> { s.invertSelection(); op = "invert"; }
+                case 3 -> { int m = 2 + random.nextInt(9); s.selectWhere(k -> k % m == 0); op = "select every " + m + "th"; }
+                case 4 -> { s.add(ShapeStore.SQUARE, i, i, Color.black, Color.white, MovingShape.MovingPath.BOUNCING, 5, 5); op = "add"; }
+                case 5 -> { s.shape(i).setSelected(!s.isSelected(i)); op = "toggle " + i + " through its view"; }
+                default -> { boolean b = random.nextBoolean(); s.setSelected(i, b); op = (b ? "select " : "deselect ") + i; }
+            }
+            assertSelectionIndexed(s, op + " at step " + step);
+        }
+        ShapeStore copy = new ShapeStore(1, s.palette);
+        s.copyTo(copy);
+        assertSelectionIndexed(copy, "copy");
+        copy.setSelected(0, !copy.isSelected(0));	// the copy has an index of its own
+        assertSelectionIndexed(copy, "toggle in copy");
+        assertSelectionIndexed(s, "toggle in copy");
+        int[] ids = new int[50];
+        for (int k = 0; k < ids.length; k++)
+            ids[k] = random.nextInt(s.size());
+        s.copyTo(copy, ids, ids.length);	// fewer shapes, some of them selected before
+        assertSelectionIndexed(copy, "copy of some");
+        s.clear();
+        assertSelectionIndexed(s, "clear");
+        for (int k = 0; k < 10; k++)
+            s.add(ShapeStore.RECTANGLE, k, k, Color.black, Color.white, MovingShape.MovingPath.FALLING, 5, 5);
+        assertSelectionIndexed(s, "adding after clear");
+    }
+
+    @Test
+    void clearsAndStartsAgain() {
+        ShapeStore s = store(50);
+        s.selectAll();
+        s.clear();
+        assertEquals(0, s.size());
+        assertEquals(0, s.selectedCount());
+        assertEquals(0, s.add(ShapeStore.RECTANGLE, 1, 2, Color.black, Color.white, MovingShape.MovingPath.BOUNCING, 3, 4));
+        assertFalse(s.isSelected(0));
+        assertEquals(1, s.x[0]);
+    }
+}
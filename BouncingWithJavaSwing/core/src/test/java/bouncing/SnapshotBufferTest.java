@@ -0,0 +1,90 @@
+/*
+ *  ===============================================================================
+ *  SnapshotBufferTest.java : Checks that the reader always gets a whole snapshot,
+ *  the newest one published, which stays unchanged until it asks again.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotBufferTest {
+
+    private static ShapeStore store(int count) {
+        ShapeStore s = new ShapeStore(count);
+        s.setMarginSize(500, 400);
+        for (int i = 0; i < count; i++)
+            s.add(ShapeStore.RECTANGLE, 0, i % 400, Color.black, Color.white, MovingShape.MovingPath.BOUNCING, 10, 10);
+        return s;
+    }
+
+    /** put a stamp in every shape, so a snapshot mixing two publishes shows
+     */
+    private static void stamp(ShapeStore s, int k) {
+        for (int i = 0; i < s.size(); i++)
+            s.x[i] = k;
+    }
+
+    @Test
+    void acquiresNewestSnapshot() {
+        ShapeStore s = store(10);
+        SnapshotBuffer buffer = new SnapshotBuffer(s.palette);
+        assertEquals(0, buffer.acquire().size(), "nothing published yet");
+        stamp(s, 1);
+        buffer.publish(s);
+        stamp(s, 2);
+        buffer.publish(s);
+        ShapeStore snapshot = buffer.acquire();
+        assertEquals(10, snapshot.size());
+        assertEquals(2, snapshot.x[9], "the newest of two publishes");
+        stamp(s, 3);
+        buffer.publish(s);
+        assertEquals(2, snapshot.x[9], "unchanged until acquired again");
+        snapshot = buffer.acquire();
+        assertEquals(3, snapshot.x[9]);
+        assertSame(snapshot, buffer.acquire(), "no newer snapshot, the same one again");
+    }
+
+    /** a writer publishing as fast as it can while a reader acquires as fast as it can
+     */
+    @Test
+    void neverTearsSnapshot() throws Exception {
+        ShapeStore s = store(2000);
+        SnapshotBuffer buffer = new SnapshotBuffer(s.palette);
+        int last = 20000;
+        AtomicReference<String> torn = new AtomicReference<String>();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> written = writer.submit(() -> {
+                for (int k = 1; k <= last; k++) {
+                    stamp(s, k);
+                    buffer.publish(s);
+                }
+            });
+            int seen = 0;
+            while (seen < last && torn.get() == null) {
+                ShapeStore snapshot = buffer.acquire();
+                if (snapshot.size() == 0)
+                    continue;
+                int k = snapshot.x[0];
+                if (k < seen)
+                    torn.set("went back from " + seen + " to " + k);
+                for (int i = 1; i < snapshot.size(); i++)
+                    if (snapshot.x[i] != k)
+                        torn.set("shape " + i + " from publish " + snapshot.x[i] + " in publish " + k);
+                seen = k;
+            }
+            written.get(1, TimeUnit.MINUTES);
+        } finally {
+            writer.shutdownNow();
+        }
+        assertNull(torn.get());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  ===============================================================================
+ *  SpatialIndexTest.java : Checks that the grid finds the very shapes a search of
+ *  every shape finds, as the shapes move, come and go and the world is resized, and
+ *  that it finds shapes in a world far larger than any panel without growing with
+ *  the area of the world.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+
+    private static List<Integer> query(SpatialIndex index, ShapeStore s, int left, int top, int right, int bottom) {
+        List<Integer> found = new ArrayList<Integer>();
+        index.queryRect(s, left, top, right, bottom, found::add);
+        Collections.sort(found);
+        return found;
+    }
+
+    /** the shapes holding a point, by asking every shape as the panel did before the index
+     */
+    private static List<Integer> containing(ShapeStore s, int px, int py) {
+        List<Integer> found = new ArrayList<Integer>();
+        for (int i = 0; i < s.size(); i++)
+            if (s.shape(i).contains(new Point(px, py)))
+                found.add(i);
+        return found;
+    }
+
+    /** the shapes overlapping a rectangle, edges included, by looking at every shape
+     */
+    private static List<Integer> overlapping(ShapeStore s, int left, int top, int right, int bottom) {
+        List<Integer> found = new ArrayList<Integer>();
+        for (int i = 0; i < s.size(); i++)
+            if (s.x[i] <= right && left <= s.x[i] + s.width[i] + 1 && s.y[i] <= bottom && top <= s.y[i] + s.height(i) + 1)
+                found.add(i);
+        return found;
+    }
+
+    /** query random points and rectangles, some reaching past the margin, against a search of every shape
+     */
+    private static void assertFindsAll(SpatialIndex index, ShapeStore s, SplittableRandom random) {
+        index.update(s);
+        int w = s.getMarginWidth(), h = s.getMarginHeight();
+        for (int q = 0; q < 200; q++) {
+            int px = random.nextInt(-50, w + 50), py = random.nextInt(-50, h + 50);
+            List<Integer> found = new ArrayList<Integer>();
+            index.queryPoint(s, px, py, found::add);
+            Collections.sort(found);
+            assertEquals(containing(s, px, py), found, "point " + px + ", " + py);
+            int left = random.nextInt(-50, w + 50), top = random.nextInt(-50, h + 50);
+            int right = left + random.nextInt(0, 200), bottom = top + random.nextInt(0, 200);
+            assertEquals(overlapping(s, left, top, right, bottom), query(index, s, left, top, right, bottom),
+                "rectangle " + left + ", " + top + " to " + right + ", " + bottom);
+        }
+    }
+
+    @Test
+    void findsWhatEveryShapeSearchFinds() {
+        for (int cellSize : new int[] { 1, 16, SpatialIndex.DEFAULT_CELL_SIZE, 1000 }) {
+            World w = new World(800, 600, 31);
+            Spawner spawner = new Spawner();
+            spawner.setCount(1500);
+            spawner.setShapeType(Spawner.MIXED);
+            spawner.setPathType(Spawner.MIXED);
+            spawner.setSize(0, 120, 0, 90);
+            w.spawn(spawner);
+            ShapeStore s = w.getShapes();
+            SpatialIndex index = new SpatialIndex(cellSize);
+            SplittableRandom random = new SplittableRandom(cellSize);
+            for (int t = 0; t < 20; t++) {	// shapes moving from cell to cell
+                w.tick();
+                assertFindsAll(index, s, random);
+            }
+            s.add(ShapeStore.RECTANGLE, 700, 500, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 400, 300);	// larger than any before
+            assertFindsAll(index, s, random);
+            w.setSize(500, 400);
+            w.tick();
+            assertFindsAll(index, s, random);
+            s.clear();	// fewer shapes than were indexed
+            spawner.setCount(300);
+            w.spawn(spawner);
+            assertFindsAll(index, s, random);
+        }
+    }
+
+    /** a grid of cells of the default size over this world would take about a gigabyte
+     */
+    @Test
+    void indexesHugeWorld() {
+        ShapeStore s = new ShapeStore(4);
+        s.setMarginSize(1000000, 1000000);
+        s.add(ShapeStore.RECTANGLE, 10, 10, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 20, 30);
+        s.add(ShapeStore.SQUARE, 999000, 5, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 50, 50);
+        s.add(ShapeStore.RECTANGLE, 500000, 999900, Color.black, Color.red, MovingShape.MovingPath.FALLING, 40, 10);
+        SpatialIndex index = new SpatialIndex();
+        index.update(s);
+        assertEquals(List.of(0), query(index, s, 15, 15, 15, 15));
+        assertEquals(List.of(1), query(index, s, 999049, 54, 999049, 54));
+        assertEquals(List.of(2), query(index, s, 499990, 999890, 500010, 999905));
+        assertEquals(List.of(0, 1, 2), query(index, s, 0, 0, 999999, 999999));
+        assertEquals(List.of(), query(index, s, 600000, 600000, 700000, 700000));
+        s.setMarginSize(1000000, 999999);	// rebuilt for every new margin
+        index.update(s);
+        assertEquals(List.of(1), query(index, s, 999010, 10, 999010, 10));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  ===============================================================================
+ *  SpawnerTest.java : Checks that every distribution places the shapes inside the
+ *  margin with the sizes, types and paths asked for, and that a grid has a cell of
+ *  its own for each of the shapes asked for.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpawnerTest {
+
+    private static Spawner spawner(int distribution, int count) {
+        Spawner spawner = new Spawner();
+        spawner.setDistribution(distribution);
+        spawner.setCount(count);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setSize(1, 60, 5, 40);
+        return spawner;
+    }
+
+    /** spawn into a store which already holds a shape, and check every new shape
+     */
+    private static ShapeStore assertInside(Spawner spawner, int width, int height) {
+        ShapeStore s = new ShapeStore(1);
+        s.setMarginSize(width, height);
+        s.add(ShapeStore.SQUARE, 1, 1, Color.black, Color.white, MovingShape.MovingPath.BOUNCING, 10, 10);
+        assertEquals(1, spawner.spawn(s, new SplittableRandom(width * 31 + height)));
+        assertEquals(1 + spawner.getCount(), s.size());
+        for (int i = 1; i < s.size(); i++) {
+            String shape = "shape " + i + " at " + s.x[i] + ", " + s.y[i] + " in " + width + " by " + height;
+            int w = s.width[i], h = s.height(i);
+            assertTrue(w >= 1 && w <= 60, "width of " + shape);
+            assertTrue(s.shapeType(i) == ShapeStore.SQUARE ? h == w : h >= 5 && h <= 40, "height of " + shape);
+            assertTrue(s.x[i] >= 0 && s.x[i] + w <= Math.max(w, width), shape);
+            assertTrue(s.y[i] >= 0 && s.y[i] + h <= Math.max(h, height), shape);
+            assertNotNull(MovingShape.MovingPath.forId(s.pathType(i)), "path of " + shape);
+        }
+        return s;
+    }
+
+    @Test
+    void placesUniformInsideMargin() {
+        assertInside(spawner(Spawner.UNIFORM, 3000), 500, 300);
+        assertInside(spawner(Spawner.UNIFORM, 300), 40, 30);	// shapes larger than the margin start at its edge
+    }
+
+    /** a wide cluster reaches past the margin and is pulled back inside
+     */
+    @Test
+    void placesGaussianInsideMargin() {
+        assertInside(spawner(Spawner.GAUSSIAN, 3000), 500, 300);
+        Spawner wide = spawner(Spawner.GAUSSIAN, 3000);
+        wide.setSigma(400);
+        ShapeStore s = assertInside(wide, 500, 300);
+        long atEdge = Arrays.stream(s.x, 1, s.size()).filter(x -> x == 0).count();
+        assertTrue(atEdge > 0, "no shape reached the left edge");
+    }
+
+    @Test
+    void placesGridInsideMargin() {
+        assertInside(spawner(Spawner.GRID, 3000), 500, 300);
+        assertInside(spawner(Spawner.GRID, 200), 900, 40);
+        assertInside(spawner(Spawner.GRID, 200), 40, 900);
+    }
+
+    /** shapes of one size in a grid are centred in cells of their own, so no two are in the same place
+     */
+    @Test
+    void gridHasCellForEveryShape() {
+        for (int count : new int[] { 1, 2, 7, 100, 1001 }) {
+            for (int[] margin : new int[][] { { 800, 600 }, { 2000, 100 }, { 100, 2000 } }) {
+                Spawner spawner = spawner(Spawner.GRID, count);
+                spawner.setShapeType(ShapeStore.SQUARE);
+                spawner.setSize(2, 2, 2, 2);
+                ShapeStore s = assertInside(spawner, margin[0], margin[1]);
+                Set<Long> places = new HashSet<Long>();
+                for (int i = 1; i < s.size(); i++)
+                    places.add(((long) s.x[i] << 32) | s.y[i]);
+                assertEquals(count, places.size(), count + " shapes in " + margin[0] + " by " + margin[1]);
+            }
+        }
+    }
+
+    @Test
+    void keepsTypeAndPath() {
+        Spawner spawner = spawner(Spawner.UNIFORM, 500);
+        spawner.setShapeType(ShapeStore.RECTANGLE);
+        spawner.setPathType(MovingShape.MovingPath.FALLING);
+        ShapeStore s = assertInside(spawner, 500, 300);
+        for (int i = 1; i < s.size(); i++) {
+            assertEquals(ShapeStore.RECTANGLE, s.shapeType(i));
+            assertEquals(MovingShape.MovingPath.FALLING, s.pathType(i));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  ===============================================================================
+ *  SpriteRendererTest.java : Checks that sprites draw the pixels PerShapeRenderer
+ *  draws, and that shapes too big for the cache or drawn scaled skip it.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.image.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpriteRendererTest {
+    private static final int WIDTH = 300, HEIGHT = 200;
+
+    private static ShapeStore shapes() {
+        ShapeStore s = new ShapeStore(4);
+        s.setMarginSize(WIDTH, HEIGHT);
+        s.add(ShapeStore.RECTANGLE, 10, 20, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 30, 15);
+        s.add(ShapeStore.SQUARE, 60, 40, Color.blue, Color.green, MovingShape.MovingPath.BOUNCING, 25, 25);
+        s.add(ShapeStore.RECTANGLE, 120, 50, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 30, 15);
+        s.setSelected(1, true);
+        return s;
+    }
+
+    private static BufferedImage draw(ShapeRenderer renderer, ShapeStore s, double scale) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.scale(scale, scale);
+        renderer.render(g, s, 1);
+        g.dispose();
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + ", " + y);
+    }
+
+    @Test
+    void drawsLikePerShape() {
+        ShapeStore s = shapes();
+        SpriteRenderer sprites = new SpriteRenderer();
+        assertSamePixels(draw(new PerShapeRenderer(), s, 1), draw(sprites, s, 1));
+        assertEquals(2, sprites.getCache().size(), "the two alike rectangles share a sprite");
+    }
+
+    /** a sprite over the budget would be made and thrown away again every frame
+     */
+    @Test
+    void drawsShapesTooBigForTheCacheDirectly() {
+        ShapeStore s = shapes();
+        SpriteRenderer sprites = new SpriteRenderer(new SpriteCache(4L * 36 * 21));	// room for the rectangle only
+        assertSamePixels(draw(new PerShapeRenderer(), s, 1), draw(sprites, s, 1));
+        assertEquals(1, sprites.getCache().size());
+        assertEquals(1, sprites.getCache().getMisses(), "the square is not looked up at all");
+    }
+
+    @Test
+    void drawsScaledShapesDirectly() {
+        ShapeStore s = shapes();
+        SpriteRenderer sprites = new SpriteRenderer();
+        assertSamePixels(draw(new PerShapeRenderer(), s, 2.5), draw(sprites, s, 2.5));
+        assertEquals(0, sprites.getCache().size());
+    }
+}
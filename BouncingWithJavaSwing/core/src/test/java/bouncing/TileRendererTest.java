@@ -0,0 +1,85 @@
+/*
+ *  ===============================================================================
+ *  TileRendererTest.java : Checks that the tiled renderer draws the very pixels
+ *  PerShapeRenderer draws.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.awt.image.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileRendererTest {
+    private static final int WIDTH = 700, HEIGHT = 500;
+    private final TileRenderer tiles = new TileRenderer(4);
+    private ShapeStore shapes;
+
+    /** a few thousand overlapping shapes of every kind, some selected, some empty, part way through a tick
+     */
+    @BeforeEach
+    void setUp() {
+        World w = new World(WIDTH, HEIGHT, 3);
+        Spawner spawner = new Spawner();
+        spawner.setCount(3000);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setColors(Spawner.randomColors(5, w.split()), Spawner.randomColors(7, w.split()));
+        w.spawn(spawner);
+        shapes = w.getShapes();
+        shapes.selectWhere(i -> i % 3 == 0);
+        for (int t = 0; t < 7; t++)
+            w.tick();
+        shapes.setWidth(5, 0);
+        shapes.setHeight(6, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tiles.close();
+    }
+
+    private BufferedImage draw(ShapeRenderer renderer, Rectangle clip, double scale) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.translate(-17, -9);
+        g.scale(scale, scale);
+        if (clip != null)
+            g.clip(clip);
+        renderer.render(g, shapes, 0.5);
+        g.dispose();
+        return image;
+    }
+
+    private void assertSamePixels(Rectangle clip, double scale) {
+        BufferedImage expected = draw(new PerShapeRenderer(), clip, scale), actual = draw(tiles, clip, scale);
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++)
+                if (expected.getRGB(x, y) != actual.getRGB(x, y))
+                    fail("pixel " + x + ", " + y + " at scale " + scale + " in " + clip);
+    }
+
+    @Test
+    void matchesPerShape() {
+        assertSamePixels(new Rectangle(0, 0, WIDTH, HEIGHT), 1);
+    }
+
+    @Test
+    void matchesPerShapeInClip() {
+        assertSamePixels(new Rectangle(33, 71, 200, 130), 1);
+        assertSamePixels(new Rectangle(-10, -10, 40, 900), 1);
+    }
+
+    /** the panel's camera scales the Graphics; the tiles are drawn in device pixels
+     */
+    @Test
+    void matchesPerShapeZoomed() {
+        assertSamePixels(new Rectangle(0, 0, WIDTH, HEIGHT), 2);
+        assertSamePixels(new Rectangle(0, 0, WIDTH * 2, HEIGHT * 2), 0.5);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  ===============================================================================
+ *  VectorMoveKernelTest.java : Checks that the vector kernel moves every shape
+ *  to the very same state as the scalar kernel, bit for bit.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorMoveKernelTest {
+
+    /** a seeded world of mixed shapes and paths, moved by a kernel; the count leaves a partial vector at the end
+     */
+    private static World world(MoveKernel kernel) {
+        World w = new World(1100, 800, 9);
+        Spawner spawner = new Spawner();
+        spawner.setCount(10003);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setSize(1, 60, 1, 60);
+        w.spawn(spawner);
+        w.getShapes().setMoveKernel(kernel);
+        return w;
+    }
+
+    private static void assertSameState(ShapeStore expected, ShapeStore actual, int tick) {
+        for (int i = 0; i < expected.size(); i++) {
+            String shape = "shape " + i + " at tick " + tick;
+            assertEquals(expected.x[i], actual.x[i], "x of " + shape);
+            assertEquals(expected.y[i], actual.y[i], "y of " + shape);
+            assertEquals(expected.prevX[i], actual.prevX[i], "prevX of " + shape);
+            assertEquals(expected.prevY[i], actual.prevY[i], "prevY of " + shape);
+            assertEquals(expected.deltaX[i], actual.deltaX[i], "deltaX of " + shape);
+            assertEquals(expected.deltaY[i], actual.deltaY[i], "deltaY of " + shape);
+            assertEquals(Double.doubleToLongBits(expected.phase[i]), Double.doubleToLongBits(actual.phase[i]), "phase of " + shape);
+        }
+    }
+
+    @Test
+    void movesLikeScalar() {
+        Assumptions.assumeTrue(MoveKernel.vector() != null, "the vector module is not there");
+        World scalar = world(MoveKernel.scalar()), vector = world(MoveKernel.vector());
+        for (int t = 1; t <= 2000; t++) {
+            scalar.tick();
+            vector.tick();
+            assertSameState(scalar.getShapes(), vector.getShapes(), t);
+        }
+    }
+
+    /** shrinking the world sends shapes out of it, to be turned back or dropped to the top
+     */
+    @Test
+    void movesLikeScalarAfterResize() {
+        Assumptions.assumeTrue(MoveKernel.vector() != null, "the vector module is not there");
+        World scalar = world(MoveKernel.scalar()), vector = world(MoveKernel.vector());
+        for (int t = 1; t <= 600; t++) {
+            if (t == 200) {
+                scalar.setSize(300, 200);
+                vector.setSize(300, 200);
+            }
+            scalar.tick();
+            vector.tick();
+            assertSameState(scalar.getShapes(), vector.getShapes(), t);
+        }
+    }
+}
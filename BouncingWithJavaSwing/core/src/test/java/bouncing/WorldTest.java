@@ -0,0 +1,236 @@
+/*
+ *  ===============================================================================
+ *  WorldTest.java : Checks that seeking a world puts every shape where ticking
+ *  it there does, that a seed makes a world run the same every time, that a
+ *  recorded run plays back into an empty world, and that changes posted from any
+ *  thread reach the shapes and the snapshots in order.
+ *  ===============================================================================
+ */
+
+package bouncing;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldTest {
+
+    /** fill a world with shapes of one path, started at random
+     */
+    private static World world(int path) {
+        World w = new World(700, 500, 42);
+        Spawner spawner = new Spawner();
+        spawner.setCount(500);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(path);
+        w.spawn(spawner);
+        return w;
+    }
+
+    private static void assertSamePositions(ShapeStore expected, ShapeStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.x[i], actual.x[i], "x of shape " + i);
+            assertEquals(expected.y[i], actual.y[i], "y of shape " + i);
+        }
+    }
+
+    /** spawn and tick a seeded world of mixed shapes and paths
+     */
+    private static ShapeStore run(long seed, ParallelMover mover, boolean collide) {
+        World w = new World(900, 600, seed);
+        Spawner spawner = new Spawner();
+        spawner.setCount(4000);
+        spawner.setShapeType(Spawner.MIXED);
+        spawner.setPathType(Spawner.MIXED);
+        spawner.setColors(Spawner.randomColors(3, w.split()), Spawner.randomColors(20, w.split()));
+        w.spawn(spawner);
+        w.populate(100, ShapeStore.SQUARE, MovingShape.MovingPath.FALLING, 10, 10);
+        w.setParallelMover(mover);
+        if (collide)
+            w.setCollisions(new CollisionDetector());
+        for (int t = 0; t < 300; t++)
+            w.tick();
+        return w.getShapes();
+    }
+
+    @Test
+    void sameSeedRunsTheSame() {
+        assertSamePositions(run(5, null, false), run(5, null, false));
+        assertSamePositions(run(5, null, true), run(5, null, true));
+    }
+
+    /** moving on several threads draws nothing from the random streams
+     */
+    @Test
+    void sameSeedRunsTheSameInParallel() {
+        ParallelMover mover = new ParallelMover(4, 500);
+        try {
+            assertSamePositions(run(5, null, false), run(5, mover, false));
+        } finally {
+            mover.close();
+        }
+    }
+
+    @Test
+    void otherSeedRunsDifferently() {
+        ShapeStore a = run(5, null, false), b = run(6, null, false);
+        int same = 0;
+        for (int i = 0; i < a.size(); i++)
+            if (a.x[i] == b.x[i] && a.y[i] == b.y[i])
+                same++;
+        assertTrue(same < a.size() / 10, same + " of " + a.size() + " shapes in the same place");
+    }
+
+    /** an empty world has nothing to tick until the player fills it from the first keyframe
+     */
+    @Test
+    void playsRecordingIntoEmptyWorld(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("run.bin");
+        World recorded = world(MovingShape.MovingPath.BOUNCING);
+        recorded.getShapes().selectWhere(i -> i % 7 == 0);
+        try (RunRecorder recorder = new RunRecorder(file, 10)) {
+            recorded.setRecorder(recorder);
+            for (int t = 0; t < 25; t++)
+                recorded.tick();
+            recorded.setRecorder(null);
+        }
+        World played = new World(100, 100, 1);
+        assertFalse(played.isPlaying());
+        try (RunPlayer player = new RunPlayer(file)) {
+            played.setPlayer(player);
+            assertTrue(played.isPlaying());
+            for (int t = 0; t < 25; t++)
+                played.tick();
+            ShapeStore expected = recorded.getShapes(), actual = played.getShapes();
+            assertSamePositions(expected, actual);
+            assertEquals(expected.getMarginWidth(), actual.getMarginWidth());
+            assertEquals(expected.getMarginHeight(), actual.getMarginHeight());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.shapeType(i), actual.shapeType(i), "type of shape " + i);
+                assertEquals(expected.width[i], actual.width[i], "width of shape " + i);
+                assertEquals(expected.isSelected(i), actual.isSelected(i), "selection of shape " + i);
+                assertEquals(expected.pathType(i), actual.pathType(i), "path of shape " + i);
+                assertEquals(expected.palette.color(expected.borderColor[i]), actual.palette.color(actual.borderColor[i]), "border of shape " + i);
+                assertEquals(expected.palette.color(expected.fillColor[i]), actual.palette.color(actual.fillColor[i]), "fill of shape " + i);
+            }
+            played.setPlayer(null);
+        }
+    }
+
+    /** commands wait for the next tick, or applyCommands, and run in the order posted
+     */
+    @Test
+    void appliesCommandsInOrder() {
+        World w = new World(300, 200, 4);
+        List<Integer> applied = new ArrayList<Integer>();
+        assertFalse(w.applyCommands());
+        for (int k = 0; k < 5; k++) {
+            int n = k;
+            w.post(world -> applied.add(n));
+        }
+        assertEquals(List.of(), applied, "nothing applied before the tick");
+        w.tick();
+        assertEquals(List.of(0, 1, 2, 3, 4), applied);
+        w.post(world -> world.getShapes().add(ShapeStore.SQUARE, 50, 60, Color.black, Color.red, MovingShape.MovingPath.BOUNCING, 9, 9));
+        assertTrue(w.applyCommands());
+        assertFalse(w.applyCommands(), "each command once");
+        assertEquals(1, w.getShapes().size());
+        List<Integer> found = new ArrayList<Integer>();
+        w.getIndex().queryPoint(w.getShapes(), 55, 65, found::add);
+        assertEquals(List.of(0), found, "the index is brought up to date");
+    }
+
+    @Test
+    void appliesCommandsFromEveryThread() throws Exception {
+        World w = new World(300, 200, 4);
+        int threads = 4, each = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> posted = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                posted.add(pool.submit(() -> {
+                    for (int k = 0; k < each; k++) {
+                        int x = thread * each + k;
+                        w.post(world -> world.getShapes().add(ShapeStore.RECTANGLE, x, 0, Color.black, Color.red, MovingShape.MovingPath.FALLING, 1, 1));
+                    }
+                }));
+            }
+            while (posted.stream().anyMatch(f -> !f.isDone()))	// ticking meanwhile
+                w.tick();
+            for (Future<?> f : posted)
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+        w.applyCommands();
+        ShapeStore s = w.getShapes();
+        assertEquals(threads * each, s.size());
+        int[] next = new int[threads];
+        for (int i = 0; i < s.size(); i++) {	// the origin is where each was added
+            int thread = s.originX[i] / each;
+            assertEquals(thread * each + next[thread]++, s.originX[i], "the commands of one thread in the order posted");
+        }
+    }
+
+    /** the snapshot is a copy as of the publish, not the live shapes
+     */
+    @Test
+    void drawsPublishedSnapshot() {
+        World w = world(MovingShape.MovingPath.BOUNCING);
+        w.getShapes().selectWhere(i -> i % 2 == 0);
+        w.tick();
+        w.publish();
+        ShapeStore snapshot = w.getSnapshot();
+        assertNotSame(w.getShapes(), snapshot);
+        ShapeStore published = new ShapeStore(1);
+        w.getShapes().copyTo(published);
+        w.tick();
+        w.tick();
+        assertSamePositions(published, w.getSnapshot());
+        assertEquals(published.selectedCount(), snapshot.selectedCount());
+        w.publish();
+        assertSamePositions(w.getShapes(), w.getSnapshot());
+    }
+
+    @Test
+    void seekMatchesTicking() {
+        for (int path : new int[] { MovingShape.MovingPath.FALLING, MovingShape.MovingPath.BOUNCING }) {
+            World ticked = world(path), sought = world(path);
+            for (int t = 0; t < 1234; t++)
+                ticked.tick();
+            sought.seek(1234);
+            assertSamePositions(ticked.getShapes(), sought.getShapes());
+            assertEquals(ticked.getTicks(), sought.getTicks());
+        }
+    }
+
+    /** a change of size rebases the shapes, so seeking goes on from there
+     */
+    @Test
+    void seekMatchesTickingAfterResize() {
+        for (int path : new int[] { MovingShape.MovingPath.FALLING, MovingShape.MovingPath.BOUNCING }) {
+            World ticked = world(path);
+            for (int t = 0; t < 100; t++)
+                ticked.tick();
+            ticked.setSize(400, 300);
+            for (int t = 0; t < 900; t++)
+                ticked.tick();
+            ShapeStore expected = new ShapeStore(1);
+            ticked.getShapes().copyTo(expected);
+            for (int t = 0; t < 500; t++)
+                ticked.tick();
+            ticked.seek(1000);
+            assertSamePositions(expected, ticked.getShapes());
+        }
+    }
+}
@@ -0,0 +1,1111 @@
+/*
+ *  ======================================================================
+ *  Brian Lin
+ *  AnimationPanel.java : 
+ *  Moves shapes around on the screen according to different paths.
+ *  The main drawing area where shapes are added and manipulated.
+ *  Contains a popup menu to clear all shapes.
+ *  Edits from the event thread are posted to the world as commands and applied
+ *  by the animation thread; painting draws the latest published snapshot.
+ *  The panel is a camera onto a world of its own size: the wheel zooms about the
+ *  mouse, dragging with the middle button or with shift held pans, and only the
+ *  part of the world in view is drawn. Resizing the window moves no shapes.
+ *  ======================================================================
+ */
+
+package bouncing.swing;
+
+import bouncing.*;
+import javax.swing.*;
+import java.awt.*;
+import java.util.*;
+import java.awt.event.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+public class AnimationPanel extends JComponent implements Runnable {
+    private volatile Thread animationThread = null;	// the thread which owns the world while the panel is showing
+    private volatile boolean running = false;	// whether the world is ticking
+    private volatile boolean showing = false;	// whether the panel is on screen
+    private final World world;	// the simulation shown in the panel, only touched by the animation thread
+    private Point marqueeStart = null;	// where the current drag selection started
+    private Rectangle marquee = null;	// the current drag selection rectangle, in panel coordinates
+    private Point panStart = null;	// where the current pan drag was last
+    private double zoom = 1;	// panel pixels per world pixel, event thread only
+    private double viewX = 0, viewY = 0;	// the world point at the top left corner of the panel, event thread only
+    private int currentXPos=10, currentYPos=20,
+        currentShapeType=0,		// the current shape type
+        currentPath=0,			// the current path type
+        currentWidth = 30,		// the current width type
+        currentHeight = 50;		// the current height type
+    private MovingShape s;		// MovingShape object
+    private Color currentBorderColor = Color.black;  // the current border colour of a shape
+    private Color currentFillColor = Color.white; 	 // the current fill colour of a shape
+    private volatile int delay = 30;		// the current animation speed
+    private volatile ShapeRenderer renderer = new PerShapeRenderer();	// draws the shapes
+    private volatile LodRenderer lod = null;	// culls and thins out the shapes for renderer, or null to draw them all
+    private final LodRenderer culler = new LodRenderer(renderer);	// only culls, for when part of the world is out of view
+    private volatile double interpolation = 1;	// fraction of a tick elapsed since the last move
+    private final PerformanceHud hud = new PerformanceHud();	// times the frames
+    private volatile boolean hudVisible = false;	// whether the timings are drawn over the shapes
+    private volatile DamageTracker damage = null;	// the regions to paint, or null to paint the whole panel
+    private final AtomicBoolean paintPending = new AtomicBoolean();	// whether painting the damage is queued on the event thread
+    private final java.util.List<Rectangle> regions = new ArrayList<Rectangle>();	// the damaged regions being painted
+    private ShapeStore regionShapes = null;	// the snapshot all damaged regions of a frame are painted from
+    private RunRecorder recorder = null;	// the log being recorded, or null
+    private RunPlayer player = null;	// the log being played back, or null
+    private JCheckBoxMenuItem recordItem, playItem;	// show whether a run is being recorded or played back
+    private static final long FRAME_NANOS = 1000000000L / 60;	// render at most 60 frames per second
+    private static final int MAX_TICKS_PER_FRAME = 250;	// drop the backlog rather than fall further behind
+    private static final int LOD_MIN_SIZE = 2;	// shapes narrower or lower than this on screen are skipped with level of detail on
+    private static final int DEFAULT_WORLD_WIDTH = 2200, DEFAULT_WORLD_HEIGHT = 1600;	// twice the first window each way
+    private static final double MIN_ZOOM = 1 / 64.0, MAX_ZOOM = 16;
+    private static final double ZOOM_STEP = 1.25;	// the zoom change per notch of the wheel
+    private static final Color OUTSIDE = Color.gray;	// the panel around the world
+    JPopupMenu popup;			// popup menu
+
+     /** Constructor of the AnimationPanel
+        */
+    public AnimationPanel() {
+        world = new World(DEFAULT_WORLD_WIDTH, DEFAULT_WORLD_HEIGHT); //create the world, whatever the size of the panel
+        world.publish();	// so the first frame shows the world, before the animation thread runs
+        culler.setDensityLimit(Integer.MAX_VALUE);
+        world.setListener(new WorldListener() {	// the world has closed the log; put the menu back to match
+            public void recordingFailed(final java.io.IOException e) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        recorder = null;
+                        recordItem.setSelected(false);
+                        JOptionPane.showMessageDialog(AnimationPanel.this, "Recording stopped: " + e.getMessage(),
+                            "Record Run", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+
+            public void playbackFailed(final java.io.IOException e) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        player = null;
+                        playItem.setSelected(false);
+                        JOptionPane.showMessageDialog(AnimationPanel.this, "Playback stopped: " + e.getMessage(),
+                            "Play Recording", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+        });
+        popup = new JPopupMenu(); //create the popup menu
+        makePopupMenu();
+        // add the mouse event to handle popup menu
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                maybeShowPopup(e);
+                if (e.isPopupTrigger())
+                    return;
+                if (SwingUtilities.isMiddleMouseButton(e) || (SwingUtilities.isLeftMouseButton(e) && e.isShiftDown()))
+                    panStart = e.getPoint();
+                else if (SwingUtilities.isLeftMouseButton(e) && running)
+                    marqueeStart = e.getPoint();	// may become a drag selection
+            }
+
+            public void mouseDragged(MouseEvent e) {
+                if (panStart != null) {
+                    panBy(e.getX() - panStart.x, e.getY() - panStart.y);
+                    panStart = e.getPoint();
+                } else if (marqueeStart != null) {
+                    marquee = new Rectangle(marqueeStart);
+                    marquee.add(e.getPoint());
+                    repaint();
+                }
+            }
+
+            public void mouseReleased(MouseEvent e) {
+                maybeShowPopup(e);
+                if (marquee != null) {  // select every shape touching the dragged rectangle
+                    final Rectangle m = toWorld(marquee);
+                    post(w -> w.getIndex().queryRect(w.getShapes(), m.x, m.y, m.x + m.width, m.y + m.height,
+                        i -> w.getShapes().setSelected(i, true)));
+                }
+                panStart = null;
+                marqueeStart = null;
+                marquee = null;
+                repaint();
+            }
+
+            private void maybeShowPopup(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    popup.show(e.getComponent(), e.getX(), e.getY());
+                }
+            }
+            public void mouseClicked( MouseEvent e ) {
+                if (running) {   // if the animation has started, then
+                    // every shape containing the mousepoint is selected/deselected
+                    final int x = worldX(e.getX()), y = worldY(e.getY());
+                    post(w -> {
+                        ShapeStore shapes = w.getShapes();
+                        w.getIndex().queryPoint(shapes, x, y, i -> shapes.setSelected(i, ! shapes.isSelected(i)));
+                    });
+                }
+            }
+
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomAt(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(mouseHandler);
+        addMouseMotionListener(mouseHandler);
+        addMouseWheelListener(mouseHandler);
+        // the animation thread idles while the panel is not on screen
+        addHierarchyListener(new HierarchyListener() {
+            public void hierarchyChanged(HierarchyEvent e) {
+                if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                    showing = isShowing();
+                    wake();
+                }
+            }
+        });
+    }
+
+    /** queue a change to the world and wake the animation thread to apply it
+     * @param c    the change
+     */
+    private void post(WorldCommand c) {
+        world.post(c);
+        wake();
+    }
+
+    /** wake the animation thread if it is idle
+     */
+    private void wake() {
+        Thread t = animationThread;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    /** create a new shape
+     */
+    protected void createNewShape() {
+        // create a new shape dependent on all current properties and the mouse position
+        final int x = currentXPos, y = currentYPos, path = currentPath, w = currentWidth, h = currentHeight;
+        final Color border = currentBorderColor, fill = currentFillColor;
+        switch (currentShapeType) {
+            case ShapeStore.RECTANGLE: {
+            	//create a new rectangle 
+				post(wd -> {
+					if (hasRoom(wd, "New Shape", 0, border, fill))
+						wd.getShapes().add(ShapeStore.RECTANGLE, x, y, border, fill, path, w, h);
+				});
+                break;
+            }
+            case ShapeStore.SQUARE: {
+            	//create a new square
+				post(wd -> {
+					if (hasRoom(wd, "New Shape", 0, border, fill))
+						wd.getShapes().add(ShapeStore.SQUARE, x, y, border, fill, path, w, w);
+				});
+                break;
+            }
+        }
+    }
+    
+	/** get the current width/height
+	 * @return currentWidth/currentHeight
+	 */
+	public int getCurrentWidth() {return currentWidth;}
+
+	public int getCurrentHeight() {return currentHeight;}
+	
+	/** set current width/height for all selected shapes
+	 * @param w/h the new width/height
+	 */
+	public void setCurrentWidth(int w) {
+		currentWidth = w;
+		post(wd -> {
+			ShapeStore shapes = wd.getShapes();
+			shapes.forEachSelected(i -> shapes.shape(i).setWidth(w));
+		});
+	}
+	public void setCurrentHeight(int h) {
+		currentHeight = h;
+		post(wd -> {
+			ShapeStore shapes = wd.getShapes();
+			shapes.forEachSelected(i -> shapes.shape(i).setHeight(h));
+		});
+	}
+	
+
+    /** set the current shape type
+     * @param s    the new shape type
+     */
+    public void setCurrentShapeType(int s) {
+        currentShapeType = s;
+    }
+
+    /** set the size of the world, which all shapes move within; it does not follow the size of the panel
+     * @param width     the width of the world
+     * @param height    the height of the world
+     */
+    public void setWorldSize(int width, int height) {
+        post(w -> w.setSize(width, height));
+    }
+
+    /** set the current path type and the path type for all currently selected shapes
+     * @param t    the new path type
+     */
+    public void setCurrentPathType(int t) {
+        currentPath = t;
+		post(w -> {
+			ShapeStore shapes = w.getShapes();
+			shapes.forEachSelected(i -> shapes.setPath(i, t));
+		});
+    }
+
+    /** set the current x and the x for all currently selected shapes
+     * @param s    the new x value
+     */
+    public void setCurrentXPos(int x) {
+        currentXPos = x;	
+		post(w -> {
+			ShapeStore shapes = w.getShapes();
+			shapes.forEachSelected(i -> shapes.shape(i).setX(x));
+		});
+    }
+
+    /** set the current y and the y for all currently selected shapes
+     * @param y    the new y value
+     */
+    public void setCurrentYPos(int y) {
+        currentYPos = y;
+		post(w -> {
+			ShapeStore shapes = w.getShapes();
+			shapes.forEachSelected(i -> shapes.shape(i).setY(y));
+		});
+    }
+
+    /** set the current border colour and the border colour for all currently selected shapes
+     * @param bc    the new border colour value
+     */
+    public void setCurrentBorderColor(Color bc) {
+        currentBorderColor = bc;
+		post(w -> {
+			ShapeStore shapes = w.getShapes();
+			if (shapes.selectedCount() > 0 && hasRoom(w, "Border Colour", 0, bc))
+				shapes.forEachSelected(i -> shapes.shape(i).setBorderColor(bc));
+		});
+    }
+
+    /** set the current fill colour and the border colour for all currently selected shapes
+     * @param bc    the new fill colour value
+     */
+    public void setCurrentFillColor(Color fc) {
+        currentFillColor = fc;
+		post(w -> {
+			ShapeStore shapes = w.getShapes();
+			if (shapes.selectedCount() > 0 && hasRoom(w, "Fill Colour", 0, fc))
+				shapes.forEachSelected(i -> shapes.shape(i).setFillColor(fc));
+		});
+    }
+
+    /** get the current x position in the top left corner
+     * @return x - the x value
+     */
+    public int getCurrentXPos() {
+        return currentXPos;
+    }
+
+    /** get the current y position in the top left corner
+     * @return y - the y value
+     */
+    public int getCurrentYPos() {
+        return currentYPos;
+    }
+
+    /** get the current fill colour
+     * @return currentFillColor - the fill colour value
+     */
+    public Color getCurrentFillColor() {
+        return currentFillColor;
+    }
+
+    /** get the current border colour
+     * @return currentBorderColor - the border colour value
+     */
+    public Color getCurrentBorderColor() {
+        return currentBorderColor;
+    }
+
+   // you don't need to make any changes after this line ______________
+
+    /** remove all shapes from the store
+     */
+    public void clearAllShapes() {
+        post(w -> w.getShapes().clear());
+    }
+
+    /**    update the painting area
+     * @param g    the graphics control
+     */
+    public void update(Graphics g){
+        paint(g);
+    }
+
+    /**    paint the shapes in view, interpolated between the last two ticks
+     * @param g    the Graphics control
+     */
+    public void paintComponent(Graphics g) {
+        ShapeStore shapes = regionShapes;
+        long start = System.nanoTime();
+        if (shapes == null) {	// not one of several regions of a frame, which paintDamage times as a whole
+            hud.frameStarted(start);
+            shapes = world.getSnapshot();
+        }
+        ShapeRenderer r = paintWorld((Graphics2D) g, shapes);
+        if (regionShapes == null)
+            hud.drew(System.nanoTime() - start);
+        Rectangle m = marquee;
+        if (m != null) {
+            g.setColor(Color.gray);
+            g.drawRect(m.x, m.y, m.width, m.height);
+        }
+        if (hudVisible)
+            hud.draw(g, shapes, r, delay);
+    }
+
+    /** paint the world through the camera
+     * @param g         the Graphics control, in panel coordinates
+     * @param shapes    the snapshot to draw
+     * @return the renderer which drew the shapes
+     */
+    private ShapeRenderer paintWorld(Graphics2D g, ShapeStore shapes) {
+        int width = shapes.getMarginWidth(), height = shapes.getMarginHeight();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(OUTSIDE);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        // a painted area holding the whole world is drawn as it is; otherwise, say for a damaged
+        // region or with part of the world out of view, the shapes outside the area are culled first
+        ShapeRenderer r = lod != null ? lod : toWorld(clip).contains(0, 0, width, height) ? renderer : culler;
+        Graphics2D wg = (Graphics2D) g.create();
+        try {
+            wg.scale(zoom, zoom);
+            wg.translate(-viewX, -viewY);
+            wg.clipRect(0, 0, width, height);
+            wg.setColor(getBackground());
+            wg.fillRect(0, 0, width, height);
+            r.render(wg, shapes, interpolation);
+        } finally {
+            wg.dispose();
+        }
+        return r;
+    }
+
+    /** return the world x/y-coordinate under a point of the panel
+     * @param x/y    the panel x/y-coordinate
+     * @return the world x/y-coordinate
+     */
+    private int worldX(int x) { return (int) Math.floor(viewX + x / zoom); }
+
+    private int worldY(int y) { return (int) Math.floor(viewY + y / zoom); }
+
+    /** return the part of the world under a rectangle of the panel
+     * @param r    the rectangle in panel coordinates
+     * @return the smallest rectangle of world pixels covering it
+     */
+    private Rectangle toWorld(Rectangle r) {
+        int x0 = worldX(r.x), y0 = worldY(r.y);
+        int x1 = (int) Math.ceil(viewX + (r.x + r.width) / zoom), y1 = (int) Math.ceil(viewY + (r.y + r.height) / zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /** return the part of the panel showing a rectangle of the world
+     * @param r    the rectangle in world coordinates
+     * @return the smallest rectangle of panel pixels covering it
+     */
+    private Rectangle toPanel(Rectangle r) {
+        int x0 = (int) Math.floor((r.x - viewX) * zoom), y0 = (int) Math.floor((r.y - viewY) * zoom);
+        int x1 = (int) Math.ceil((r.x + r.width - viewX) * zoom), y1 = (int) Math.ceil((r.y + r.height - viewY) * zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /** zoom the camera in or out, keeping the world point under a point of the panel where it is
+     * @param factor    how many times larger the world is to look, below 1 to zoom out
+     * @param x/y       the panel point to zoom about
+     */
+    public void zoomAt(double factor, int x, int y) {
+        double z = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        viewX += x / zoom - x / z;
+        viewY += y / zoom - y / z;
+        zoom = z;
+        repaint();
+    }
+
+    /** move the camera so the world moves with the mouse
+     * @param dx/dy    the distance to move the world by, in panel pixels
+     */
+    public void panBy(int dx, int dy) {
+        viewX -= dx / zoom;
+        viewY -= dy / zoom;
+        repaint();
+    }
+
+    /** zoom and move the camera so the whole world fits in the panel, centred
+     */
+    public void fitWorld() {
+        ShapeStore shapes = world.getSnapshot();
+        int width = shapes.getMarginWidth(), height = shapes.getMarginHeight();
+        if (width <= 0 || height <= 0 || getWidth() <= 0 || getHeight() <= 0)
+            return;
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, Math.min(getWidth() / (double) width, getHeight() / (double) height)));
+        viewX = (width - getWidth() / zoom) / 2;
+        viewY = (height - getHeight() / zoom) / 2;
+        repaint();
+    }
+
+    /** show the world at its actual size from its top left corner
+     */
+    public void resetView() {
+        zoom = 1;
+        viewX = viewY = 0;
+        repaint();
+    }
+
+    /** return the zoom of the camera
+     * @return the panel pixels per world pixel
+     */
+    public double getZoom() { return zoom; }
+
+    /** paint the regions damaged since the last frame, or everything if too much changed
+     */
+    protected void paintDamage() {
+        paintPending.set(false);
+        DamageTracker d = damage;
+        if (d == null)
+            return;
+        if (d.drain(regions)) {
+            repaint();
+            return;
+        }
+        for (int k = 0; k < regions.size(); k++)	// tracked in the world, painted in the panel
+            regions.set(k, toPanel(regions.get(k)));
+        if (hudVisible)
+            regions.add(hud.getBounds());
+        long start = System.nanoTime();
+        hud.frameStarted(start);
+        regionShapes = world.getSnapshot();
+        try {
+            for (Rectangle r: regions)
+                paintImmediately(r);
+        } finally {
+            regionShapes = null;
+        }
+        hud.drew(System.nanoTime() - start);
+    }
+
+    /** ask for the latest published snapshot to be painted; animation thread only
+     */
+    private void requestFrame() {
+        DamageTracker d = damage;
+        if (d == null) {
+            repaint();
+            return;
+        }
+        d.track(world.getShapes());
+        if (paintPending.compareAndSet(false, true))
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    paintDamage();
+                }
+            });
+    }
+
+    /** advance the simulation by one fixed step
+     */
+    protected void tick() {
+        long start = System.nanoTime();
+        world.tick();
+        hud.moved(start, System.nanoTime() - start);
+    }
+
+    /** create the popup menu for our animation program
+     */
+    protected void makePopupMenu() {
+        JMenuItem menuItem;
+     // clear all
+        menuItem = new JMenuItem("Clear All");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                clearAllShapes();
+            }
+        });
+        popup.add(menuItem);
+     // bulk selection
+        JMenu selectMenu = new JMenu("Select");
+        addSelectItem(selectMenu, "All", w -> w.getShapes().selectAll());
+        addSelectItem(selectMenu, "None", w -> w.getShapes().clearSelection());
+        addSelectItem(selectMenu, "Invert", w -> w.getShapes().invertSelection());
+        selectMenu.addSeparator();
+        addSelectItem(selectMenu, "Rectangles", w -> w.getShapes().selectWhere(i -> w.getShapes().shapeType(i) == ShapeStore.RECTANGLE));
+        addSelectItem(selectMenu, "Squares", w -> w.getShapes().selectWhere(i -> w.getShapes().shapeType(i) == ShapeStore.SQUARE));
+        addSelectItem(selectMenu, "Falling", w -> w.getShapes().selectWhere(i -> w.getShapes().pathType(i) == MovingShape.MovingPath.FALLING));
+        addSelectItem(selectMenu, "Bouncing", w -> w.getShapes().selectWhere(i -> w.getShapes().pathType(i) == MovingShape.MovingPath.BOUNCING));
+        popup.add(selectMenu);
+     // spawn many shapes
+        menuItem = new JMenuItem("Spawn Shapes...");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                spawnShapes();
+            }
+        });
+        popup.add(menuItem);
+     // save the scene
+        menuItem = new JMenuItem("Save Scene...");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                saveScene();
+            }
+        });
+        popup.add(menuItem);
+     // load a scene
+        menuItem = new JMenuItem("Load Scene...");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                loadScene();
+            }
+        });
+        popup.add(menuItem);
+     // parallel update
+        final JCheckBoxMenuItem parallelItem = new JCheckBoxMenuItem("Parallel Update");
+        parallelItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setParallelUpdate(parallelItem.isSelected());
+            }
+        });
+        popup.add(parallelItem);
+     // collisions
+        final JCheckBoxMenuItem collisionItem = new JCheckBoxMenuItem("Collisions");
+        collisionItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setCollisions(collisionItem.isSelected());
+            }
+        });
+        popup.add(collisionItem);
+     // how shapes are drawn
+        JMenu rendererMenu = new JMenu("Renderer");
+        ButtonGroup rendererGroup = new ButtonGroup();
+        addRendererItem(rendererMenu, rendererGroup, "Per Shape", PerShapeRenderer.class);
+        addRendererItem(rendererMenu, rendererGroup, "Batched by Colour", BatchedRenderer.class);
+        addRendererItem(rendererMenu, rendererGroup, "Sprite Cache", SpriteRenderer.class);
+        addRendererItem(rendererMenu, rendererGroup, "Tiled on All Cores", TileRenderer.class);
+        rendererGroup.getElements().nextElement().setSelected(true);
+        popup.add(rendererMenu);
+     // dirty regions
+        final JCheckBoxMenuItem dirtyItem = new JCheckBoxMenuItem("Repaint Changed Regions Only");
+        dirtyItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setDirtyRegions(dirtyItem.isSelected());
+            }
+        });
+        popup.add(dirtyItem);
+     // level of detail
+        final JCheckBoxMenuItem lodItem = new JCheckBoxMenuItem("Level of Detail");
+        lodItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setLevelOfDetail(lodItem.isSelected(), LOD_MIN_SIZE, LodRenderer.DEFAULT_DENSITY_LIMIT);
+            }
+        });
+        popup.add(lodItem);
+     // the camera
+        JMenu viewMenu = new JMenu("View");
+        menuItem = new JMenuItem("Fit World");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                fitWorld();
+            }
+        });
+        viewMenu.add(menuItem);
+        menuItem = new JMenuItem("Actual Size");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                resetView();
+            }
+        });
+        viewMenu.add(menuItem);
+        menuItem = new JMenuItem("Zoom In");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                zoomAt(ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+            }
+        });
+        viewMenu.add(menuItem);
+        menuItem = new JMenuItem("Zoom Out");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                zoomAt(1 / ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+            }
+        });
+        viewMenu.add(menuItem);
+        viewMenu.addSeparator();
+        menuItem = new JMenuItem("World Size...");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                askWorldSize();
+            }
+        });
+        viewMenu.add(menuItem);
+        popup.add(viewMenu);
+        popup.addSeparator();
+     // performance overlay
+        final JCheckBoxMenuItem hudItem = new JCheckBoxMenuItem("Performance HUD");
+        hudItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                hudVisible = hudItem.isSelected();
+                repaint();
+            }
+        });
+        popup.add(hudItem);
+     // dump the frame times
+        menuItem = new JMenuItem("Dump Frame Times...");
+        menuItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                dumpFrameTimes();
+            }
+        });
+        popup.add(menuItem);
+        popup.addSeparator();
+     // record the run
+        recordItem = new JCheckBoxMenuItem("Record Run...");
+        recordItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                recordItem.setSelected(recordItem.isSelected() ? startRecording() : stopRecording());
+            }
+        });
+        popup.add(recordItem);
+     // play a recorded run
+        playItem = new JCheckBoxMenuItem("Play Recording...");
+        playItem.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                playItem.setSelected(playItem.isSelected() ? startPlayback() : stopPlayback());
+            }
+        });
+        popup.add(playItem);
+     }
+
+    /** add an item to the renderer menu
+     * @param menu     the menu
+     * @param group    the group which keeps one renderer chosen
+     * @param label    the text of the item
+     * @param type     the renderer to draw with when the item is chosen
+     */
+    private void addRendererItem(JMenu menu, ButtonGroup group, String label, final Class<? extends ShapeRenderer> type) {
+        JRadioButtonMenuItem item = new JRadioButtonMenuItem(label);
+        item.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                try {
+                    setRenderer(type.getDeclaredConstructor().newInstance());
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        group.add(item);
+        menu.add(item);
+    }
+
+    /** add an item to the select menu
+     * @param menu     the menu
+     * @param label    the text of the item
+     * @param c        the change to the selection, posted when the item is chosen
+     */
+    private void addSelectItem(JMenu menu, String label, final WorldCommand c) {
+        JMenuItem item = new JMenuItem(label);
+        item.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                post(c);
+            }
+        });
+        menu.add(item);
+    }
+
+    /** ask for the size of the world and resize it
+     */
+    protected void askWorldSize() {
+        ShapeStore shapes = world.getSnapshot();
+        JSpinner width = new JSpinner(new SpinnerNumberModel(Math.max(1, shapes.getMarginWidth()), 1, 1000000, 100));
+        JSpinner height = new JSpinner(new SpinnerNumberModel(Math.max(1, shapes.getMarginHeight()), 1, 1000000, 100));
+        JPanel form = new JPanel(new GridLayout(0, 2, 6, 4));
+        form.add(new JLabel("Width:"));
+        form.add(width);
+        form.add(new JLabel("Height:"));
+        form.add(height);
+        if (JOptionPane.showConfirmDialog(this, form, "World Size", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE)
+                == JOptionPane.OK_OPTION)
+            setWorldSize((Integer) width.getValue(), (Integer) height.getValue());
+    }
+
+    /** ask how many shapes to add and how, then add them in one batch
+     */
+    protected void spawnShapes() {
+        JSpinner count = new JSpinner(new SpinnerNumberModel(10000, 1, 10000000, 1000));
+        JComboBox<String> distribution = new JComboBox<String>(new String[] { "Uniform", "Gaussian cluster", "Grid" });
+        JComboBox<String> shape = new JComboBox<String>(new String[] { "Rectangle", "Square", "Mixed" });
+        shape.setSelectedIndex(currentShapeType);
+        JComboBox<String> path = new JComboBox<String>(new String[] { "Falling", "Bouncing", "Mixed" });
+        path.setSelectedIndex(currentPath);
+        JSpinner minWidth = new JSpinner(new SpinnerNumberModel(currentWidth, 1, 1000, 1));
+        JSpinner maxWidth = new JSpinner(new SpinnerNumberModel(currentWidth, 1, 1000, 1));
+        JSpinner minHeight = new JSpinner(new SpinnerNumberModel(currentHeight, 1, 1000, 1));
+        JSpinner maxHeight = new JSpinner(new SpinnerNumberModel(currentHeight, 1, 1000, 1));
+        JSpinner colors = new JSpinner(new SpinnerNumberModel(0, 0, 1000, 1));
+        String[] labels = { "Shapes:", "Positions:", "Shape:", "Path:", "Width from:", "Width to:",
+            "Height from:", "Height to:", "Random fill colours (0 = current):" };
+        JComponent[] fields = { count, distribution, shape, path, minWidth, maxWidth, minHeight, maxHeight, colors };
+        JPanel form = new JPanel(new GridLayout(0, 2, 6, 4));
+        for (int k = 0; k < labels.length; k++) {
+            form.add(new JLabel(labels[k]));
+            form.add(fields[k]);
+        }
+        if (JOptionPane.showConfirmDialog(this, form, "Spawn Shapes", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE)
+                != JOptionPane.OK_OPTION)
+            return;
+        final Spawner spawner = new Spawner();
+        spawner.setCount((Integer) count.getValue());
+        spawner.setDistribution(distribution.getSelectedIndex());
+        spawner.setShapeType(shape.getSelectedIndex() == 2 ? Spawner.MIXED : shape.getSelectedIndex());
+        spawner.setPathType(path.getSelectedIndex() == 2 ? Spawner.MIXED : path.getSelectedIndex());
+        spawner.setSize((Integer) minWidth.getValue(), (Integer) maxWidth.getValue(), (Integer) minHeight.getValue(), (Integer) maxHeight.getValue());
+        final int n = (Integer) colors.getValue();
+        final Color border = currentBorderColor, fill = currentFillColor;
+        post(w -> {	// the colours come from the world's random streams too
+            if (!hasRoom(w, "Spawn Shapes", n, border, fill))
+                return;
+            spawner.setColors(new Color[] { border }, n > 0 ? Spawner.randomColors(n, w.split()) : new Color[] { fill });
+            w.spawn(spawner);
+        });
+    }
+
+    /** ask for a file and save every shape to it
+     */
+    protected void saveScene() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("scene.bns"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        final java.io.File file = chooser.getSelectedFile();
+        post(w -> {
+            try {
+                w.saveScene(file.toPath());
+            } catch (java.io.IOException ex) {
+                showError("Could not write " + file + ": " + ex.getMessage(), "Save Scene");
+            }
+        });
+    }
+
+    /** ask for a scene file and replace the shapes with those in it
+     */
+    protected void loadScene() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        final java.io.File file = chooser.getSelectedFile();
+        post(w -> {
+            try {
+                w.loadScene(file.toPath());
+            } catch (java.io.IOException ex) {
+                showError("Could not read " + file + ": " + ex.getMessage(), "Load Scene");
+            }
+        });	// the world takes the size the scene was saved with
+    }
+
+    /** show an error message from any thread
+     * @param message    the message
+     * @param title      the title of the dialog
+     */
+    /** return whether colours fit in the palette of the world, telling the user if not; ticking thread only
+     *    Commands check this before adding colours, so a full palette refuses the edit
+     *    rather than failing in the middle of a tick.
+     * @param title     the title of the message
+     * @param more      the number of other colours which may be new
+     * @param colors    colours which are new unless already in the palette
+     */
+    private boolean hasRoom(World w, String title, int more, Color... colors) {
+        if (w.getShapes().getPalette().hasRoom(more, colors))
+            return true;
+        showError("The scene already has the most colours it can hold (" + ColorPalette.MAX_COLORS + ").", title);
+        return false;
+    }
+
+    private void showError(final String message, final String title) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                JOptionPane.showMessageDialog(AnimationPanel.this, message, title, JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    /** ask for a file and record every tick to it
+     * @return true if recording started
+     */
+    protected boolean startRecording() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("run.bnc"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return false;
+        try {
+            final RunRecorder r = new RunRecorder(chooser.getSelectedFile().toPath());
+            recorder = r;
+            post(w -> w.setRecorder(r));
+            return true;
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not write " + chooser.getSelectedFile() + ": " + ex.getMessage(),
+                "Record Run", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+    }
+
+    /** stop recording and close the log
+     * @return false, the recording state afterwards
+     */
+    protected boolean stopRecording() {
+        final RunRecorder r = recorder;
+        recorder = null;
+        if (r == null)	// it failed, and the world closed it already
+            return false;
+        post(w -> {
+            w.setRecorder(null);
+            try {
+                r.close();
+            } catch (java.io.IOException ex) {
+                System.err.println("Could not close the recording: " + ex.getMessage());
+            }
+        });
+        return false;
+    }
+
+    /** ask for a recorded run and play it back instead of moving the shapes
+     * @return true if playback started
+     */
+    protected boolean startPlayback() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+            return false;
+        try {
+            final RunPlayer p = new RunPlayer(chooser.getSelectedFile().toPath());
+            player = p;
+            post(w -> w.setPlayer(p));
+            return true;
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not read " + chooser.getSelectedFile() + ": " + ex.getMessage(),
+                "Play Recording", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+    }
+
+    /** stop playback and go on moving the shapes from where it left them
+     * @return false, the playback state afterwards
+     */
+    protected boolean stopPlayback() {
+        final RunPlayer p = player;
+        player = null;
+        if (p == null)	// it failed, and the world closed it already
+            return false;
+        post(w -> {
+            w.setPlayer(null);
+            try {
+                p.close();
+            } catch (java.io.IOException ex) {
+                System.err.println("Could not close the recording: " + ex.getMessage());
+            }
+        });
+        return false;
+    }
+
+    /** ask for a file and write the frame time histogram to it
+     */
+    protected void dumpFrameTimes() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("frame-times.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        try {
+            hud.dump(chooser.getSelectedFile().toPath());
+        } catch (java.io.IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not write " + chooser.getSelectedFile() + ": " + ex.getMessage(),
+                "Dump Frame Times", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /** set how the shapes are drawn; the renderer it replaces is closed if it has threads
+     * @param r    the renderer
+     */
+    public void setRenderer(ShapeRenderer r) {
+        ShapeRenderer old = renderer;
+        if (r instanceof TileRenderer)	// it paints every pixel of the area, background included
+            ((TileRenderer) r).setBackground(getBackground());
+        LodRenderer l = lod;
+        if (l != null)
+            l.setDelegate(r);
+        culler.setDelegate(r);
+        renderer = r;
+        if (old instanceof TileRenderer && old != r)	// painting is on this thread, so it is not drawing
+            ((TileRenderer) old).close();
+        repaint();
+    }
+
+    /** turn level of detail on or off
+     *    With it on, shapes out of view or smaller than minSize are skipped, and cells crowded
+     *    with more than densityLimit shapes are drawn as blocks coloured by how crowded they are.
+     * @param on              true to draw only what can be seen, false to draw every shape
+     * @param minSize         the width or height in pixels a shape must reach to be drawn
+     * @param densityLimit    the number of shapes a cell may hold before it is drawn as a block
+     */
+    public void setLevelOfDetail(boolean on, int minSize, int densityLimit) {
+        if (on) {
+            LodRenderer l = new LodRenderer(renderer);
+            l.setMinSize(minSize);
+            l.setDensityLimit(densityLimit);
+            lod = l;
+        } else
+            lod = null;
+        repaint();
+    }
+
+    /** turn painting only the regions the shapes changed on or off
+     * @param on    true to repaint damaged regions, false to repaint the whole panel every frame
+     */
+    public void setDirtyRegions(boolean on) {
+        damage = on ? new DamageTracker() : null;
+        repaint();
+    }
+
+    /** turn bouncing shapes off each other on or off
+     * @param on    true to make bouncing shapes collide
+     */
+    public void setCollisions(boolean on) {
+        world.setCollisions(on ? new CollisionDetector() : null);
+    }
+
+    /** turn moving the shapes on all cores on or off
+     * @param on    true to move shapes in parallel
+     */
+    public void setParallelUpdate(boolean on) {
+        world.setParallelMover(on ? new ParallelMover() : null);
+    }
+
+    /** move the shapes in parallel with the given settings
+     * @param parallelism    the number of worker threads
+     * @param threshold      the number of shapes below which moving stays sequential
+     */
+    public void setParallelUpdate(int parallelism, int threshold) {
+        world.setParallelMover(new ParallelMover(parallelism, threshold));
+    }
+
+    /** change the speed of the animation
+     * @param newValue     the speed of the animation in ms
+     */
+    public void adjustSpeed(int newValue) {
+        delay = newValue;
+        wake();
+    }
+
+    /**    When the "start" button is pressed, start ticking the world
+     */
+    public void start() {
+        running = true;
+        wake();
+    }
+
+    /**    When the "stop" button is pressed, stop ticking the world
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /** start the animation thread once the panel is showing
+     */
+    public void addNotify() {
+        super.addNotify();
+        animationThread = new Thread(this, "animation");
+        animationThread.setDaemon(true);
+        animationThread.start();
+    }
+
+    /** end the animation thread once the panel is gone
+     */
+    public void removeNotify() {
+        Thread t = animationThread;
+        animationThread = null;
+        LockSupport.unpark(t);
+        super.removeNotify();
+    }
+
+    /** run the animation
+     *    The simulation ticks once every delay ms, at absolute deadlines so the rate
+     *    does not drift with painting; frames are published and requested in between,
+     *    at most once per FRAME_NANOS however short the delay, and interpolate from the
+     *    last two ticks. The thread idles until woken while the world is
+     *    stopped, off screen, or empty and not playing a log, which fills it on its
+     *    first tick; posted commands are applied even then.
+     */
+    public void run() {
+        Thread myThread = Thread.currentThread();
+        TickClock clock = new TickClock(tickNanos());
+        long lastFrame = 0;
+        boolean idle = true;
+        while(animationThread==myThread) {
+            boolean changed = world.applyCommands();
+            if (running && showing && (world.getShapes().size() > 0 || world.isPlaying())) {
+                long now = System.nanoTime();
+                if (idle) {	// owe nothing for the time spent idle
+                    clock.reset(now);
+                    lastFrame = now - FRAME_NANOS;
+                    idle = false;
+                }
+                clock.setPeriod(tickNanos());
+                for (int n = clock.due(now, MAX_TICKS_PER_FRAME); n > 0; n--)
+                    tick();
+                if (now - lastFrame >= FRAME_NANOS) {	// with a short delay, several ticks go by per frame
+                    interpolation = clock.alpha(now);
+                    world.publish();
+                    requestFrame();
+                    lastFrame = now;
+                }
+                LockSupport.parkNanos(this, Math.min(clock.next(), lastFrame + FRAME_NANOS) - System.nanoTime());
+            } else {
+                if (!idle) {	// show the latest tick
+                    interpolation = 1;
+                    idle = changed = true;
+                }
+                if (changed) {
+                    world.publish();
+                    requestFrame();
+                }
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /** return the time between ticks
+     * @return the current delay in ns
+     */
+    private long tickNanos() {
+        return Math.max(1, delay) * 1000000L;
+    }
+
+    /** Show the total area of all shapes and the other scene figures
+     */ 
+	public void calculateArea() {
+		ShapeStore shapes = world.getSnapshot();
+		SceneStats stats = shapes.stats();
+		Rectangle b = stats.getBounds();
+		String message = String.format("Area: %,d (selected: %,d)%n"
+			+ "Shapes: %,d (rectangles: %,d, squares: %,d)%n"
+			+ "Paths: falling %,d, bouncing %,d%n"
+			+ "Selected: %,d%n"
+			+ "Bounds: (%d, %d) to (%d, %d)",
+			stats.getArea(), stats.getSelectedArea(),
+			shapes.size(), stats.getShapeCount(ShapeStore.RECTANGLE), stats.getShapeCount(ShapeStore.SQUARE),
+			stats.getPathCount(MovingShape.MovingPath.FALLING), stats.getPathCount(MovingShape.MovingPath.BOUNCING),
+			shapes.selectedCount(), b.x, b.y, b.x + b.width, b.y + b.height);
+		JOptionPane.showMessageDialog(this, message, "Area", JOptionPane.INFORMATION_MESSAGE);
+	}
+}
@@ -6,6 +6,9 @@
  *  ==============================================================
  */
 
+package bouncing.swing;
+
+import bouncing.*;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
@@ -37,12 +40,6 @@ public class BouncingMain extends JFrame {
         add(panel, BorderLayout.CENTER);
         add(setUpToolsPanel(), BorderLayout.NORTH);
         add(setUpButtons(), BorderLayout.SOUTH);
-        addComponentListener(
-            new ComponentAdapter() { // resize the frame and reset all margins for all shapes
-                public void componentResized(ComponentEvent componentEvent) {
-                    panel.resetMarginSize();
-            }
-        });
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1100, 800);
         Dimension d = Toolkit.getDefaultToolkit().getScreenSize();
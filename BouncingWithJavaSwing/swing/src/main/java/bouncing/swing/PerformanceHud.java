@@ -0,0 +1,107 @@
+/*
+ *  ======================================================================
+ *  PerformanceHud.java : 
+ *  Times the frames, the move phase and the draw phase of an AnimationPanel
+ *  and draws the figures as an overlay in the top left corner.
+ *  ======================================================================
+ */
+
+package bouncing.swing;
+
+import bouncing.*;
+import java.awt.*;
+import java.io.*;
+import java.nio.file.*;
+
+public class PerformanceHud {
+    public static final int WINDOW = 600;	// the number of samples each figure is taken over
+    private final FrameTimeHistogram frames = new FrameTimeHistogram(WINDOW);	// time between frames
+    private final FrameTimeHistogram moves = new FrameTimeHistogram(WINDOW);	// time taken by a tick
+    private final FrameTimeHistogram draws = new FrameTimeHistogram(WINDOW);	// time taken to draw the shapes
+    private final FrameTimeHistogram ticks = new FrameTimeHistogram(WINDOW);	// time between ticks
+    private long lastFrame = 0;		// when the previous frame started
+    private long lastTick = 0;		// when the previous tick started
+    private final Rectangle bounds = new Rectangle();	// where the overlay was drawn last
+
+    /** note the start of a frame
+     * @param now    System.nanoTime() at the start of the frame
+     */
+    public void frameStarted(long now) {
+        if (lastFrame != 0)
+            frames.record(now - lastFrame);
+        lastFrame = now;
+    }
+
+    /** record a tick
+     * @param start    System.nanoTime() at the start of the tick
+     * @param nanos    how long the tick took in ns
+     */
+    public void moved(long start, long nanos) {
+        if (lastTick != 0)
+            ticks.record(start - lastTick);
+        lastTick = start;
+        moves.record(nanos);
+    }
+
+    /** record how long drawing the shapes took
+     * @param nanos    the duration in ns
+     */
+    public void drew(long nanos) { draws.record(nanos); }
+
+    /** draw the overlay
+     * @param g             the Graphics control
+     * @param shapes        the shapes being drawn
+     * @param renderer      the renderer drawing them
+     * @param tickMillis    the period the ticks should run at, in ms
+     */
+    public void draw(Graphics g, ShapeStore shapes, ShapeRenderer renderer, int tickMillis) {
+        double frame = frames.mean();
+        double move = moves.mean();
+        double tick = ticks.mean();
+        String lod = "";
+        if (renderer instanceof LodRenderer) {
+            LodRenderer l = (LodRenderer) renderer;
+            lod = String.format("drawn: %,d   culled: %,d   dense cells: %,d", l.getDrawn(), l.getCulled(), l.getBlocks());
+            renderer = l.getDelegate();
+        }
+        String sprites = "";
+        if (renderer instanceof SpriteRenderer) {
+            SpriteCache c = ((SpriteRenderer) renderer).getCache();
+            long lookups = c.getHits() + c.getMisses();
+            sprites = String.format("sprites: %d, %.1f MB, hit rate %.1f%%, %d evicted", c.size(), c.getBytes() / 1048576.0,
+                lookups == 0 ? 0 : 100.0 * c.getHits() / lookups, c.getEvictions());
+        }
+        String[] lines = {
+            String.format("FPS: %.1f", frame == 0 ? 0 : 1e9 / frame),
+            String.format("frame p50/p99/max: %.1f / %.1f / %.1f ms", frames.percentile(50) / 1e6, frames.percentile(99) / 1e6, frames.max() / 1e6),
+            String.format("move: %.2f ms   draw: %.2f ms", move / 1e6, draws.mean() / 1e6),
+            String.format("ticks/s: %.1f of %.1f, move p99 %.1f ms", tick == 0 ? 0 : 1e9 / tick, 1000.0 / Math.max(1, tickMillis), moves.percentile(99) / 1e6),
+            String.format("shapes: %,d   selected: %,d   area: %,d", shapes.size(), shapes.selectedCount(), shapes.stats().getArea()),
+            lod,
+            sprites
+        };
+        FontMetrics fm = g.getFontMetrics();
+        int width = 0;
+        for (String line: lines)
+            width = Math.max(width, fm.stringWidth(line));
+        g.setColor(new Color(0, 0, 0, 160));
+        bounds.setBounds(4, 4, width + 12, lines.length * fm.getHeight() + 8);
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(Color.white);
+        for (int k = 0; k < lines.length; k++)
+            g.drawString(lines[k], 10, 8 + fm.getAscent() + k * fm.getHeight());
+    }
+
+    /** return where the overlay was drawn last
+     * @return the bounds, empty before the first draw
+     */
+    public Rectangle getBounds() { return new Rectangle(bounds); }
+
+    /** write the frame time histogram to a file
+     * @param file    the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void dump(Path file) throws IOException {
+        frames.dump(file);
+    }
+}